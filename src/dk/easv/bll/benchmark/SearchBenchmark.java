@@ -0,0 +1,124 @@
+package dk.easv.bll.benchmark;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.LineEvaluator;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.IEvaluator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.LazySmpSearch;
+import dk.easv.bll.game.PrincipalVariationSearch;
+import dk.easv.bll.game.TreeParallelSearch;
+import dk.easv.bll.move.IMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Benchmarks of the searches in dk.easv.bll.game, kept out of the search classes so
+ * the bots do not carry them. The first argument picks the benchmark:
+ * <ul>
+ * <li>tree-parallel: TreeParallelSearch playouts per second at 1, 2, 4, 8 and 16 threads</li>
+ * <li>pvs [depth]: PrincipalVariationSearch nodes with and without the null windows and
+ * the aspiration windows, searched to depth, 8 if left out</li>
+ * <li>lazy-smp: LazySmpSearch depth and nodes per second at 1, 2, 4, 8 and 16 threads</li>
+ * </ul>
+ */
+public class SearchBenchmark {
+
+    private static final IEvaluator EVALUATOR = (simulator, moves, count, player) ->
+            LineEvaluator.DEFAULT.evaluate(simulator.getCurrentState().getField(), player);
+
+    public static void main(String[] args) {
+        String benchmark = args.length > 0 ? args[0] : "";
+        switch (benchmark) {
+            case "tree-parallel":
+                treeParallel();
+                break;
+            case "pvs":
+                principalVariation(args.length > 1 ? Integer.parseInt(args[1]) : 8);
+                break;
+            case "lazy-smp":
+                lazySmp();
+                break;
+            default:
+                System.out.println("Usage: SearchBenchmark tree-parallel | pvs [depth] | lazy-smp");
+        }
+    }
+
+    /**
+     * Scaling benchmark: searches the empty board for one second at 1, 2, 4, 8 and 16
+     * threads and prints the playouts per second. Only as many threads as there are
+     * cores can speed it up.
+     */
+    private static void treeParallel() {
+        GameState start = new GameState(new BitboardField());
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            TreeParallelSearch search = new TreeParallelSearch(threads);
+            search.search(start, System.nanoTime() + 200_000_000L); // warm up
+            IMove move = search.search(start, System.nanoTime() + 1_000_000_000L);
+            System.out.println(threads + " threads: " + search.getPlayouts() + " playouts/s, best move " + move);
+        }
+    }
+
+    /**
+     * Searches the same positions to the same depth with plain alpha-beta, with null
+     * windows and with null and aspiration windows, and prints the nodes searched.
+     */
+    private static void principalVariation(int searchDepth) {
+        // Positions from random games, from move 10 on
+        Random random = new Random(1);
+        List<IGameState> positions = new ArrayList<>();
+        while (positions.size() < 40) {
+            GameManager game = new GameManager(new GameState(new BitboardField()));
+            while (game.getGameOver() == GameManager.GameOverState.Active && positions.size() < 40) {
+                List<IMove> moves = game.getCurrentState().getField().getAvailableMoves();
+                if (moves.isEmpty())
+                    break;
+                if (game.getCurrentState().getMoveNumber() >= 10 && random.nextInt(4) == 0)
+                    positions.add(new GameState(game.getCurrentState()));
+                game.updateGame(moves.get(random.nextInt(moves.size())));
+            }
+        }
+
+        // Warm up, so the first mode is not timed while the JIT compiles
+        for (IGameState position : positions)
+            new PrincipalVariationSearch(EVALUATOR).search(position, 4, System.nanoTime() + 3_600_000_000_000L);
+
+        String[] names = {"alpha-beta", "null windows", "null and aspiration windows"};
+        for (int mode = 0; mode < names.length; mode++) {
+            PrincipalVariationSearch search = new PrincipalVariationSearch(EVALUATOR);
+            search.setPrincipalVariation(mode > 0);
+            if (mode < 2)
+                search.setAspirationWindow(0); // the last mode keeps the default window
+            long nodes = 0;
+            int researches = 0;
+            long start = System.nanoTime();
+            for (IGameState position : positions) {
+                search.search(position, searchDepth, System.nanoTime() + 3_600_000_000_000L);
+                nodes += search.getNodes();
+                researches += search.getResearches();
+            }
+            System.out.println(names[mode] + ": " + nodes + " nodes, " + researches + " researches, "
+                    + (System.nanoTime() - start) / 1_000_000 + " ms");
+        }
+    }
+
+    /**
+     * Searches the empty board for one second at 1, 2, 4, 8 and 16 threads, each time
+     * with an empty table, and prints the depth reached and the nodes per second.
+     */
+    private static void lazySmp() {
+        GameState position = new GameState(new BitboardField());
+        System.out.println("cores: " + Runtime.getRuntime().availableProcessors());
+        for (int threads = 1; threads <= 16; threads *= 2) {
+            new LazySmpSearch(EVALUATOR, threads).search(position, System.nanoTime() + 200_000_000L); // warm up
+            LazySmpSearch measured = new LazySmpSearch(EVALUATOR, threads); // with an empty table
+            IMove move = measured.search(position, System.nanoTime() + 1_000_000_000L);
+            System.out.println(threads + " threads: depth " + measured.getDepth() + ", "
+                    + measured.getNodes() + " nodes/s, best move " + move);
+        }
+    }
+}
@@ -1,13 +1,16 @@
 package dk.easv.bll.bot;
 
+import dk.easv.bll.field.Cell;
 import dk.easv.bll.field.IField;
-import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameSimulator;
 import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.TranspositionTable;
 import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Objects;
 import java.util.Random;
 
 public class Backup implements IBot {
@@ -16,17 +19,17 @@ public class Backup implements IBot {
     private long timerStartMillis = 0;
 
     private String timerMsg = "";
-    private GameSimulator createSimulator(IGameState state) {
-        GameSimulator simulator = new GameSimulator(new GameState());
-        simulator.setGameOver(GameOverState.Active);
-        simulator.setCurrentPlayer(state.getMoveNumber() % 2);
-        simulator.getCurrentState().setRoundNumber(state.getRoundNumber());
-        simulator.getCurrentState().setMoveNumber(state.getMoveNumber());
-        simulator.getCurrentState().getField().setBoard(state.getField().getBoard());
-        simulator.getCurrentState().getField().setMacroboard(state.getField().getMacroboard());
-        return simulator;
-    }
+    private int player;
+    private int opponent;
+
+    // The search plays and takes back moves on this simulator, one move buffer per ply
+    private GameSimulator simulator;
+    private final int[][] moveBuffers = new int[82][81];
 
+    // Results of positions already searched, kept between the iterations and the moves
+    private final TranspositionTable table = new TranspositionTable(18);
+    // Mixed into the key, a position is scored differently for the maximizing side
+    private static final long MAXIMIZING_KEY = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
 
     @Override
     public IMove doMove(IGameState state) {
@@ -52,10 +55,12 @@ public class Backup implements IBot {
         int depth = 1; // Start with initial depth
         IMove bestMove = null;
 
-        // Continue searching until time limit is reached
-        while (System.currentTimeMillis() - startTime < maxTimeMs) {
-            GameSimulator simulator = createSimulator(state);
-            bestMove = simulator.findBestMove(simulator, depth);
+        // Continue searching until time limit is reached, or until the search
+        // reaches as deep as there are empty squares and cannot find more
+        int maxDepth = emptySquares(state.getField());
+        while (depth <= maxDepth && System.currentTimeMillis() - startTime < maxTimeMs) {
+            simulator = new GameSimulator(state);
+            bestMove = findBestMove(depth);
             depth++; // Increase depth for next iteration
         }
 
@@ -63,719 +68,497 @@ public class Backup implements IBot {
 
     }
 
+    private static int emptySquares(IField field) {
+        int count = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++)
+                if (field.getCell(x, y) == Cell.EMPTY)
+                    count++;
+        return count;
+    }
 
 
 
 
-    /*
-        The code below is a simulator for simulation of gameplay. This is needed for AI.
-
-        It is put here to make the Bot independent of the GameManager and its subclasses/enums
-
-        Now this class is only dependent on a few interfaces: IMove, IField, and IGameState
-
-        You could say it is self-contained. The drawback is that if the game rules change, the simulator must be
-        changed accordingly, making the code redundant.
-
-     */
 
     @Override
     public String getBotName() {
         return BOT_NAME;
     }
 
-    public enum GameOverState {
-        Active,
-        Win,
-        Tie
-    }
-
-    public class Move implements IMove {
-        int x = 0;
-        int y = 0;
-
-        public Move(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
+    /*
+        The search runs on the shared GameSimulator from dk.easv.bll.game. Moves are played and taken back
+        on one copy of the state, with one move buffer per ply, instead of cloning the state for every node.
 
-        public Move() {
+        A position is looked up in the transposition table before its moves are searched. An entry searched
+        at least as deep whose score is exact, or a bound outside the window, is returned right away.
+     */
 
-        }
+    //--------------------------------------
+    private int minimax(int depth, int alpha, int beta, boolean isMaximizingPlayer, int ply) {
+        //minimax(GameSimulator simulator, int depth, int alpha, int beta, boolean isMaximizingPlayer)
 
-        @Override
-        public int getX() {
-            return x;
-        }
+        int[] moves = moveBuffers[ply];
+        int count = simulator.availableMovesInto(moves);
+        int score = evaluate(moves, count);
+        if (depth == 0 || simulator.getGameOver() != GameManager.GameOverState.Active || count == 0) {
 
-        @Override
-        public int getY() {
-            return y;
-        }
 
+            // If at max depth or game over, evaluate the board state
+            return score;
 
-        @Override
-        public String toString() {
-            return "(" + x + "," + y + ")";
+            //return 0;
         }
-
-        // @Override
-        // public boolean equals(Object o) {
-        //     if (this == o) return true;
-        //     if (o == null || getClass() != o.getClass()) return false;
-        //     ExampleSneakyBot.Move move = (ExampleSneakyBot.Move) o;
-        //     return x == move.x && y == move.y;
-        // }
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Move move = (Move) o;
-            return x == move.x && y == move.y;
+        // If Maximizer has won the game
+        // return his/her evaluated score
+        // Check for terminal states
+        if (score >= 10000 || score <= -10000) {
+            return score; // Return the evaluated score if there's a win or loss
         }
-        //
-        @Override
-        public int hashCode() {
-            return Objects.hash(x, y);
+        if (count == 0) {
+            return 0; // Return 0 for a tie if there are no available moves
         }
-    }
 
+        long key = simulator.getHash() ^ (isMaximizingPlayer ? MAXIMIZING_KEY : 0);
+        long entry = table.probe(key);
+        if (TranspositionTable.isCutoff(entry, depth, alpha, beta))
+            return TranspositionTable.score(entry);
+        int alphaBefore = alpha;
+        int betaBefore = beta;
+        int bestMove = -1;
 
+        // If this maximizer's move
+        if (isMaximizingPlayer) {
+            int best = Integer.MIN_VALUE;
 
-    class GameSimulator {
-        private IGameState currentState;
-        private int currentPlayer = 0; //player0 == 0 && player1 == 1
-        private int player;
-        private int opponent;
-        private volatile GameOverState gameOver = GameOverState.Active;
-
-        public void setGameOver(GameOverState state) {
-            gameOver = state;
+            //int best = -1000;
+            //List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+            // Traverse all cells
+            for (int i = 0; i < count; i++) {
+                // Make the move
+                simulator.play(moves[i]);
+                int val = minimax(depth - 1, alpha, beta, false /*isMaximizingPlayer*/, ply + 1);
+                // Take it back again
+                simulator.undo();
+                if (val > best) {
+                    best = val;
+                    bestMove = moves[i];
+                }
+                alpha = Math.max(alpha, best);
+                if (beta <= alpha)
+                    break; // Beta cut-off
+            }
+            table.store(key, depth, TranspositionTable.boundOf(best, alphaBefore, betaBefore), best, bestMove);
+            return best;
+        } else  // If this minimizer's move
+        {
+            // int best = 1000;
+            int best = Integer.MAX_VALUE;
+            //  List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+            // Traverse all cells
+            for (int i = 0; i < count; i++) {
+                // Make the move
+                simulator.play(moves[i]);
+                int val = minimax(depth - 1, alpha, beta, true /*isMaximizingPlayer*/, ply + 1);
+                // Take it back again
+                simulator.undo();
+                if (val < best) {
+                    best = val;
+                    bestMove = moves[i];
+                }
+                beta = Math.min(beta, best);
+                if (beta <= alpha)
+                    break; // Alpha cut-off
+            }
+            table.store(key, depth, TranspositionTable.boundOf(best, alphaBefore, betaBefore), best, bestMove);
+            return best;
         }
+    }
+    private int evaluate(int[] moves, int count) {
 
-        public GameOverState getGameOver() {
-            return gameOver;
-        }
+        if(count > 0) {
+            int x = moves[0] / 9;
+            int y = moves[0] % 9;
+            int startX = x - (x % 3);
+            int startY = y - (y % 3);
+            IField board = simulator.getCurrentState().getField();
 
-        public void setCurrentPlayer(int player) {
-            currentPlayer = player;
-        }
+            int score = 0;
 
-        public IGameState getCurrentState() {
-            return currentState;
-        }
+            // Evaluate rows
+            for (int row = startX; row < startX + 3; row++) {
+                score += evaluateLine(board.getCell(row, startY), board.getCell(row, startY + 1), board.getCell(row, startY + 2));
+            }
 
-        public GameSimulator(IGameState currentState) {
-            this.currentState = currentState;
-        }
+            // Evaluate columns
+            for (int col = startY; col < startY + 3; col++) {
+                score += evaluateLine(board.getCell(startX, col), board.getCell(startX + 1, col), board.getCell(startX + 2, col));
+            }
 
-        public Boolean updateGame(IMove move) {
-            if (!verifyMoveLegality(move))
-                return false;
+            // Evaluate diagonals
+            score += evaluateLine(board.getCell(startX, startY), board.getCell(startX + 1, startY + 1), board.getCell(startX + 2, startY + 2));
+            score += evaluateLine(board.getCell(startX, startY + 2), board.getCell(startX + 1, startY + 1), board.getCell(startX + 2, startY));
 
-            updateBoard(move);
-            currentPlayer = (currentPlayer + 1) % 2;
+          /*  for (IMove move : moves) {
+                GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
+                newSimulator.updateGame(move);
+                if (isWinningMove(newSimulator, player)) {
+                    score += 10000; // Add a high score for winning moves
+                }
+            }*/
 
-            return true;
+            return score;
         }
+        return 0;
+    }
 
-        private Boolean verifyMoveLegality(IMove move) {
-            IField field = currentState.getField();
-            boolean isValid = field.isInActiveMicroboard(move.getX(), move.getY());
-
-            if (isValid && (move.getX() < 0 || 9 <= move.getX())) isValid = false;
-            if (isValid && (move.getY() < 0 || 9 <= move.getY())) isValid = false;
-
-            if (isValid && !field.getBoard()[move.getX()][move.getY()].equals(IField.EMPTY_FIELD))
-                isValid = false;
-
-            return isValid;
-        }
+   /* private int evaluate(GameSimulator simulator) {
+        List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+        if (!moves.isEmpty()) {
+            int localX = moves.get(0).getX() % 3;
+            int localY = moves.get(0).getY() % 3;
+            int startX = moves.get(0).getX() - (localX);
+            int startY = moves.get(0).getY() - (localY);
+            String[][] board = simulator.getCurrentState().getField().getBoard();
 
-        private void updateBoard(IMove move) {
-            String[][] board = currentState.getField().getBoard();
-            board[move.getX()][move.getY()] = currentPlayer + "";
-            currentState.setMoveNumber(currentState.getMoveNumber() + 1);
-            if (currentState.getMoveNumber() % 2 == 0) {
-                currentState.setRoundNumber(currentState.getRoundNumber() + 1);
+            int bestScore = Integer.MIN_VALUE;
+            // Evaluate rows
+            for (int row = startX; row < startX + 3; row++) {
+                //score += evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
+                int lineScore = evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
+                bestScore = Math.max(bestScore, lineScore);
+                System.out.println("bestscore from rows" + bestScore);
             }
-            checkAndUpdateIfWin(move);
-            updateMacroboard(move);
 
-        }
-
-        private void checkAndUpdateIfWin(IMove move) {
-            String[][] macroBoard = currentState.getField().getMacroboard();
-            int macroX = move.getX() / 3;
-            int macroY = move.getY() / 3;
+            // Evaluate columns
+            for (int col = startY; col < startY + 3; col++) {
+                //score += evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
+                int lineScore = evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
+                bestScore = Math.max(bestScore, lineScore);
+                System.out.println("bestscore from columns" + bestScore);
 
-            if (macroBoard[macroX][macroY].equals(IField.EMPTY_FIELD) ||
-                    macroBoard[macroX][macroY].equals(IField.AVAILABLE_FIELD)) {
+            }
 
-                String[][] board = getCurrentState().getField().getBoard();
+            // Evaluate diagonals
+            int diagonal1Score = evaluateLine(board[startX][startY], board[startX + 1][startY + 1], board[startX + 2][startY + 2]);
+            int diagonal2Score = evaluateLine(board[startX][startY + 2], board[startX + 1][startY + 1], board[startX + 2][startY]);
+            bestScore = Math.max(bestScore, Math.max(diagonal1Score, diagonal2Score));
+            System.out.println("bestscore from diagnols" + bestScore);
 
-                if (isWin(board, move, "" + currentPlayer))
-                    macroBoard[macroX][macroY] = currentPlayer + "";
-                else if (isTie(board, move))
-                    macroBoard[macroX][macroY] = "TIE";
+            // Add score based on the number of winning positions on the board
 
-                //Check macro win
-                if (isWin(macroBoard, new Move(macroX, macroY), "" + currentPlayer))
-                    gameOver = GameOverState.Win;
-                else if (isTie(macroBoard, new Move(macroX, macroY)))
-                    gameOver = GameOverState.Tie;
-            }
+           // score += evaluateWinningPositions(board,startX,startY);
+            System.out.println("bestscoreoverll" + bestScore);
 
+            return bestScore;
         }
+        return 0;
+    }*/
 
-        private boolean isTie(String[][] board, IMove move) {
-            int localX = move.getX() % 3;
-            int localY = move.getY() % 3;
-            int startX = move.getX() - (localX);
-            int startY = move.getY() - (localY);
+    private int evaluateWinningPositions(String[][] board,int startX,int startY) {
+        // Count the number of winning positions on the board
+        int winningPositions = 0;
 
-            for (int i = startX; i < startX + 3; i++) {
-                for (int k = startY; k < startY + 3; k++) {
-                    if (board[i][k].equals(IField.AVAILABLE_FIELD) ||
-                            board[i][k].equals(IField.EMPTY_FIELD))
-                        return false;
+        // Check rows
+        for (int row = startX; row < startX + 3; row++) {
+            if (board[row][startY].equals(board[row][startY+1]) && board[row][startY+1].equals(board[row][startY+2])) {
+                if (!board[row][startY].equals(IField.EMPTY_FIELD)) {
+                    winningPositions++;
                 }
             }
-            return true;
         }
 
-
-        public boolean isWin(String[][] board, IMove move, String currentPlayer) {
-            int localX = move.getX() % 3;
-            int localY = move.getY() % 3;
-            int startX = move.getX() - (localX);
-            int startY = move.getY() - (localY);
-
-            //check col
-            for (int i = startY; i < startY + 3; i++) {
-                if (!board[move.getX()][i].equals(currentPlayer))
-                    break;
-                if (i == startY + 3 - 1) return true;
-            }
-
-            //check row
-            for (int i = startX; i < startX + 3; i++) {
-                if (!board[i][move.getY()].equals(currentPlayer))
-                    break;
-                if (i == startX + 3 - 1) return true;
-            }
-
-            //check diagonal
-            if (localX == localY) {
-                //we're on a diagonal
-                int y = startY;
-                for (int i = startX; i < startX + 3; i++) {
-                    if (!board[i][y++].equals(currentPlayer))
-                        break;
-                    if (i == startX + 3 - 1) return true;
+        // Check columns
+        for (int col = startY; col <startY+ 3; col++) {
+            if (board[startX][col].equals(board[startX+1][col]) && board[startX+1][col].equals(board[startX+2][col])) {
+                if (!board[startX][col].equals(IField.EMPTY_FIELD)) {
+                    winningPositions++;
                 }
             }
+        }
 
-            //check anti diagonal
-            if (localX + localY == 3 - 1) {
-                int less = 0;
-                for (int i = startX; i < startX + 3; i++) {
-                    if (!board[i][(startY + 2) - less++].equals(currentPlayer))
-                        break;
-                    if (i == startX + 3 - 1) return true;
-                }
+        // Check diagonals
+        if (board[startX][startY].equals(board[startX+1][startY+1]) && board[startX+1][startY+1].equals(board[startX+2][startY+2])) {
+            if (!board[startX][startY].equals(IField.EMPTY_FIELD)) {
+                winningPositions++;
             }
-            return false;
         }
-
-        private void updateMacroboard(IMove move) {
-            String[][] macroBoard = currentState.getField().getMacroboard();
-            for (int i = 0; i < macroBoard.length; i++)
-                for (int k = 0; k < macroBoard[i].length; k++) {
-                    if (macroBoard[i][k].equals(IField.AVAILABLE_FIELD))
-                        macroBoard[i][k] = IField.EMPTY_FIELD;
-                }
-
-            int xTrans = move.getX() % 3;
-            int yTrans = move.getY() % 3;
-
-            if (macroBoard[xTrans][yTrans].equals(IField.EMPTY_FIELD))
-                macroBoard[xTrans][yTrans] = IField.AVAILABLE_FIELD;
-            else {
-                // Field is already won, set all fields not won to avail.
-                for (int i = 0; i < macroBoard.length; i++)
-                    for (int k = 0; k < macroBoard[i].length; k++) {
-                        if (macroBoard[i][k].equals(IField.EMPTY_FIELD))
-                            macroBoard[i][k] = IField.AVAILABLE_FIELD;
-                    }
+        if (board[startX][startY+2].equals(board[startX+1][startY+1]) && board[startX+1][startY+1].equals(board[startX+2][startY])) {
+            if (!board[startX][startY+2].equals(IField.EMPTY_FIELD)) {
+                winningPositions++;
             }
         }
 
-        //--------------------------------------
-        private int minimax(GameSimulator simulator, int depth, int alpha, int beta, boolean isMaximizingPlayer) {
-            //minimax(GameSimulator simulator, int depth, int alpha, int beta, boolean isMaximizingPlayer)
+        // Assign scores based on the number of winning positions
+        int score = 0;
+        if (winningPositions > 0) {
+            score += winningPositions * 10000;
+        }
+
+        return score;
+    }
 
-            int score = evaluate(simulator);
-            if (depth == 0 || simulator.getGameOver() != GameOverState.Active || simulator.getCurrentState().getField().getAvailableMoves().isEmpty()) {
 
 
-                // If at max depth or game over, evaluate the board state
-                System.out.println("score from evaluation at depth==0" + score);
-                return score;
+    private int evaluateLine(byte cell1, byte cell2, byte cell3) {
+        int score = 0;
+        int emptyCount =0;
 
-                //return 0;
-            }
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-            System.out.println("available moves" + moves);
-            // If Maximizer has won the game
-            // return his/her evaluated score
-            // Check for terminal states
-            if (score >= 10000 || score <= -10000) {
-                return score; // Return the evaluated score if there's a win or loss
+        // Count the number of X's and O's in the line
+        int playerCount = 0;
+        int opponentCount = 0;
+        for (int i = 0; i < 3; i++) {
+            byte cell = i == 0 ? cell1 : i == 1 ? cell2 : cell3;
+            if (cell == Cell.ofPlayer(player)) {
+                playerCount++;
+            } else if (cell == Cell.ofPlayer(opponent)) {
+                opponentCount++;
             }
-            if (moves.isEmpty()) {
-                return 0; // Return 0 for a tie if there are no available moves
+            else{
+                emptyCount++;
             }
 
-            // If this maximizer's move
-            if (isMaximizingPlayer) {
-                int best = Integer.MIN_VALUE;
-
-                //int best = -1000;
-                //List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-                // Traverse all cells
-                for (IMove move : moves) {
-                    // Current state clone
-                    GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                    // Make the move
-                    newSimulator.updateGame(move);
-                    int val = minimax(newSimulator, depth - 1, alpha, beta, false /*isMaximizingPlayer*/);
-                    best = Math.max(best, val);
-                    alpha = Math.max(alpha, best);
-                    if (beta <= alpha)
-                        break; // Beta cut-off
-                }
-                System.out.println("score from minimax maximizer" + best);
-                return best;
-            } else  // If this minimizer's move
-            {
-                // int best = 1000;
-                int best = Integer.MAX_VALUE;
-                //  List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-                // Traverse all cells
-                for (IMove move : moves) {
-                    // Current state clone
-                    GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                    // Make the move
-                    newSimulator.updateGame(move);
-                    int val = minimax(newSimulator, depth - 1, alpha, beta, true /*isMaximizingPlayer*/);
-                    best = Math.min(best, val);
-                    beta = Math.min(beta, best);
-                    if (beta <= alpha)
-                        break; // Alpha cut-off
-                }
-                System.out.println("score from minimax minimizer" + best);
-                return best;
-            }
         }
-        private int evaluate(GameSimulator simulator) {
 
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-            if(!moves.isEmpty()) {
-                int localX = moves.get(0).getX() % 3;
-                int localY = moves.get(0).getY() % 3;
-                int startX = moves.get(0).getX() - (localX);
-                int startY = moves.get(0).getY() - (localY);
-                String[][] board = simulator.getCurrentState().getField().getBoard();
+        // Evaluate the line based on the counts of player's and opponent's marks
+        if (playerCount == 3) {
+            score += 10000; // Player wins the line
 
-                int score = 0;
+        } else if (opponentCount == 3) {
+            score -= 10000; // Opponent wins the line
 
-                // Evaluate rows
-                for (int row = startX; row < startX + 3; row++) {
-                    score += evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
-                    System.out.println("score from rows" + score);
+        } else if (playerCount == 2 && emptyCount == 1) {
+            score += 1000; // Two in a row for player with one empty cell
 
-                }
+        } else if (opponentCount == 2 && emptyCount == 1) {
+            score -= 1000; // Two in a row for opponent with one empty cell, consider blocking
 
-                // Evaluate columns
-                for (int col = startY; col < startY + 3; col++) {
-                    score += evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
-                    System.out.println("score from columns" + score);
-                }
+        } else if (playerCount == 1 && emptyCount == 2) {
+            score += 100; // One in a row for player with two empty cells
 
-                // Evaluate diagonals
-                score += evaluateLine(board[startX][startY], board[startX + 1][startY + 1], board[startX + 2][startY + 2]);
-                score += evaluateLine(board[startX][startY + 2], board[startX + 1][startY + 1], board[startX + 2][startY]);
+        }else if (playerCount == 1 && opponentCount == 1){
+            score += 100;
+        }else if (opponentCount == 1 && emptyCount == 2) {
+            score -= 50; // One in a row for opponent with two empty cells
 
-              /*  for (IMove move : moves) {
-                    GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                    newSimulator.updateGame(move);
-                    if (isWinningMove(newSimulator, player)) {
-                        score += 10000; // Add a high score for winning moves
-                    }
-                }*/
+        } else if (opponentCount == 0 && playerCount == 0 && emptyCount == 3) {
+            // All cells are empty, the line is open for both players
+            score += 10; // Favorable for both players, but not decisive
 
-                System.out.println("score from evaluate" + score);
-                return score;
-            }
-            return 0;
         }
+        return score;
 
-       /* private int evaluate(GameSimulator simulator) {
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-            if (!moves.isEmpty()) {
-                int localX = moves.get(0).getX() % 3;
-                int localY = moves.get(0).getY() % 3;
-                int startX = moves.get(0).getX() - (localX);
-                int startY = moves.get(0).getY() - (localY);
-                String[][] board = simulator.getCurrentState().getField().getBoard();
-
-                int bestScore = Integer.MIN_VALUE;
-                // Evaluate rows
-                for (int row = startX; row < startX + 3; row++) {
-                    //score += evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
-                    int lineScore = evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
-                    bestScore = Math.max(bestScore, lineScore);
-                    System.out.println("bestscore from rows" + bestScore);
-                }
-
-                // Evaluate columns
-                for (int col = startY; col < startY + 3; col++) {
-                    //score += evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
-                    int lineScore = evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
-                    bestScore = Math.max(bestScore, lineScore);
-                    System.out.println("bestscore from columns" + bestScore);
-
-                }
-
-                // Evaluate diagonals
-                int diagonal1Score = evaluateLine(board[startX][startY], board[startX + 1][startY + 1], board[startX + 2][startY + 2]);
-                int diagonal2Score = evaluateLine(board[startX][startY + 2], board[startX + 1][startY + 1], board[startX + 2][startY]);
-                bestScore = Math.max(bestScore, Math.max(diagonal1Score, diagonal2Score));
-                System.out.println("bestscore from diagnols" + bestScore);
+    }
 
-                // Add score based on the number of winning positions on the board
 
-               // score += evaluateWinningPositions(board,startX,startY);
-                System.out.println("bestscoreoverll" + bestScore);
 
-                return bestScore;
-            }
-            return 0;
-        }*/
+    private int evaluate2() {
+        //Need to get current board in full
+        List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+        if (!moves.isEmpty()) {
+            int localX = moves.get(0).getX() % 3;
+            int localY = moves.get(0).getY() % 3;
+            int startX = moves.get(0).getX() - (localX);
+            int startY = moves.get(0).getY() - (localY);
+            String[][] macroBoard = simulator.getCurrentState().getField().getBoard();
 
-        private int evaluateWinningPositions(String[][] board,int startX,int startY) {
-            // Count the number of winning positions on the board
-            int winningPositions = 0;
 
-            // Check rows
+            // Checking for Rows for X or O victory.
             for (int row = startX; row < startX + 3; row++) {
-                if (board[row][startY].equals(board[row][startY+1]) && board[row][startY+1].equals(board[row][startY+2])) {
-                    if (!board[row][startY].equals(IField.EMPTY_FIELD)) {
-                        winningPositions++;
+                if (macroBoard[row][0].equals(macroBoard[row][1]) &&
+                        macroBoard[row][1].equals(macroBoard[row][2])) {
+                    if (macroBoard[row][0].equals(Integer.toString(player))) {
+                        return +10;
+                    } else if (macroBoard[row][0].equals(Integer.toString(opponent))) {
+                        return -10;
                     }
                 }
             }
 
-            // Check columns
-            for (int col = startY; col <startY+ 3; col++) {
-                if (board[startX][col].equals(board[startX+1][col]) && board[startX+1][col].equals(board[startX+2][col])) {
-                    if (!board[startX][col].equals(IField.EMPTY_FIELD)) {
-                        winningPositions++;
+            // Checking for Columns for X or O victory.
+            for (int col = startY; col < startY + 3; col++) {
+                if (macroBoard[startX][col].equals(macroBoard[startX + 1][col]) &&
+                        macroBoard[startX + 1][col].equals(macroBoard[startX + 2][col])) {
+                    if (macroBoard[startX][col].equals(Integer.toString(player))) {
+                        return +10;
+                    } else if (macroBoard[startX][col].equals(Integer.toString(opponent))) {
+                        return -10;
                     }
                 }
             }
-
-            // Check diagonals
-            if (board[startX][startY].equals(board[startX+1][startY+1]) && board[startX+1][startY+1].equals(board[startX+2][startY+2])) {
-                if (!board[startX][startY].equals(IField.EMPTY_FIELD)) {
-                    winningPositions++;
+            // Checking for Diagonals for X or O victory.
+            if (macroBoard[startX][startY].equals(macroBoard[startX + 1][startY + 1]) && macroBoard[startX + 1][startY + 1].equals(macroBoard[startX + 2][startY + 2])) {
+                if (macroBoard[0][0].equals(Integer.toString(player))) {
+                    return +10;
+                } else if (macroBoard[0][0].equals(Integer.toString(opponent))) {
+                    return -10;
                 }
             }
-            if (board[startX][startY+2].equals(board[startX+1][startY+1]) && board[startX+1][startY+1].equals(board[startX+2][startY])) {
-                if (!board[startX][startY+2].equals(IField.EMPTY_FIELD)) {
-                    winningPositions++;
+            if (macroBoard[0][2].equals(macroBoard[1][1]) && macroBoard[1][1].equals(macroBoard[2][0])) {
+                if (macroBoard[0][2].equals(Integer.toString(player))) {
+                    return +10;
+                } else if (macroBoard[0][2].equals(Integer.toString(opponent))) {
+                    return -10;
                 }
             }
 
-            // Assign scores based on the number of winning positions
-            int score = 0;
-            if (winningPositions > 0) {
-                score += winningPositions * 10000;
-            }
-
-            return score;
+            // Else if none of them have won then return 0
+            return 0;
         }
+        return 0;
+    }
+    //ideja- evaluate turetu imti Move o new visa simulatoriu
 
 
 
-        private int evaluateLine(String cell1, String cell2, String cell3) {
-            int score = 0;
-            int emptyCount =0;
+    /*private int evaluateWinningPositions(String[][] board) {
+        // Count the number of winning positions on the board
+        int winningPositions = 0;
 
-            // Count the number of X's and O's in the line
-            int playerCount = 0;
-            int opponentCount = 0;
-            for (String cell : new String[]{cell1, cell2, cell3}) {
-                if (cell.equals(Integer.toString(player))) {
-                    playerCount++;
-                } else if (cell.equals(Integer.toString(opponent))) {
-                    opponentCount++;
-                }
-                else{
-                    emptyCount++;
+        // Check rows
+        for (int row = 0; row < 3; row++) {
+            if (board[row][0].equals(board[row][1]) && board[row][1].equals(board[row][2])) {
+                if (!board[row][0].equals(IField.EMPTY_FIELD)) {
+                    winningPositions++;
                 }
-
-            }
-
-            // Evaluate the line based on the counts of player's and opponent's marks
-            if (playerCount == 3) {
-                score += 10000; // Player wins the line
-
-            } else if (opponentCount == 3) {
-                score -= 10000; // Opponent wins the line
-
-            } else if (playerCount == 2 && emptyCount == 1) {
-                score += 1000; // Two in a row for player with one empty cell
-
-            } else if (opponentCount == 2 && emptyCount == 1) {
-                score -= 1000; // Two in a row for opponent with one empty cell, consider blocking
-                System.out.println("-1000 for opponent" + score);
-
-            } else if (playerCount == 1 && emptyCount == 2) {
-                score += 100; // One in a row for player with two empty cells
-
-            }else if (playerCount == 1 && opponentCount == 1){
-                score += 100;
-            }else if (opponentCount == 1 && emptyCount == 2) {
-                score -= 50; // One in a row for opponent with two empty cells
-
-            } else if (opponentCount == 0 && playerCount == 0 && emptyCount == 3) {
-                // All cells are empty, the line is open for both players
-                score += 10; // Favorable for both players, but not decisive
-
             }
-            return score;
-
         }
 
-
-
-        private int evaluate2(GameSimulator simulator) {
-            //Need to get current board in full
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-            if (!moves.isEmpty()) {
-                int localX = moves.get(0).getX() % 3;
-                int localY = moves.get(0).getY() % 3;
-                int startX = moves.get(0).getX() - (localX);
-                int startY = moves.get(0).getY() - (localY);
-                String[][] macroBoard = simulator.getCurrentState().getField().getBoard();
-
-
-                // Checking for Rows for X or O victory.
-                for (int row = startX; row < startX + 3; row++) {
-                    if (macroBoard[row][0].equals(macroBoard[row][1]) &&
-                            macroBoard[row][1].equals(macroBoard[row][2])) {
-                        if (macroBoard[row][0].equals(Integer.toString(player))) {
-                            return +10;
-                        } else if (macroBoard[row][0].equals(Integer.toString(opponent))) {
-                            return -10;
-                        }
-                    }
-                }
-
-                // Checking for Columns for X or O victory.
-                for (int col = startY; col < startY + 3; col++) {
-                    if (macroBoard[startX][col].equals(macroBoard[startX + 1][col]) &&
-                            macroBoard[startX + 1][col].equals(macroBoard[startX + 2][col])) {
-                        if (macroBoard[startX][col].equals(Integer.toString(player))) {
-                            return +10;
-                        } else if (macroBoard[startX][col].equals(Integer.toString(opponent))) {
-                            return -10;
-                        }
-                    }
-                }
-                // Checking for Diagonals for X or O victory.
-                if (macroBoard[startX][startY].equals(macroBoard[startX + 1][startY + 1]) && macroBoard[startX + 1][startY + 1].equals(macroBoard[startX + 2][startY + 2])) {
-                    if (macroBoard[0][0].equals(Integer.toString(player))) {
-                        return +10;
-                    } else if (macroBoard[0][0].equals(Integer.toString(opponent))) {
-                        return -10;
-                    }
-                }
-                if (macroBoard[0][2].equals(macroBoard[1][1]) && macroBoard[1][1].equals(macroBoard[2][0])) {
-                    if (macroBoard[0][2].equals(Integer.toString(player))) {
-                        return +10;
-                    } else if (macroBoard[0][2].equals(Integer.toString(opponent))) {
-                        return -10;
-                    }
+        // Check columns
+        for (int col = 0; col < 3; col++) {
+            if (board[0][col].equals(board[1][col]) && board[1][col].equals(board[2][col])) {
+                if (!board[0][col].equals(IField.EMPTY_FIELD)) {
+                    winningPositions++;
                 }
-
-                // Else if none of them have won then return 0
-                return 0;
             }
-            return 0;
         }
-        //ideja- evaluate turetu imti Move o new visa simulatoriu
-
-
 
-        /*private int evaluateWinningPositions(String[][] board) {
-            // Count the number of winning positions on the board
-            int winningPositions = 0;
-
-            // Check rows
-            for (int row = 0; row < 3; row++) {
-                if (board[row][0].equals(board[row][1]) && board[row][1].equals(board[row][2])) {
-                    if (!board[row][0].equals(IField.EMPTY_FIELD)) {
-                        winningPositions++;
-                    }
-                }
-            }
-
-            // Check columns
-            for (int col = 0; col < 3; col++) {
-                if (board[0][col].equals(board[1][col]) && board[1][col].equals(board[2][col])) {
-                    if (!board[0][col].equals(IField.EMPTY_FIELD)) {
-                        winningPositions++;
-                    }
-                }
-            }
-
-            // Check diagonals
-            if (board[0][0].equals(board[1][1]) && board[1][1].equals(board[2][2])) {
-                if (!board[0][0].equals(IField.EMPTY_FIELD)) {
-                    winningPositions++;
-                }
-            }
-            if (board[0][2].equals(board[1][1]) && board[1][1].equals(board[2][0])) {
-                if (!board[0][2].equals(IField.EMPTY_FIELD)) {
-                    winningPositions++;
-                }
+        // Check diagonals
+        if (board[0][0].equals(board[1][1]) && board[1][1].equals(board[2][2])) {
+            if (!board[0][0].equals(IField.EMPTY_FIELD)) {
+                winningPositions++;
             }
-
-            // Assign scores based on the number of winning positions
-            int score = 0;
-            if (winningPositions > 0) {
-                score += winningPositions * 1000;
+        }
+        if (board[0][2].equals(board[1][1]) && board[1][1].equals(board[2][0])) {
+            if (!board[0][2].equals(IField.EMPTY_FIELD)) {
+                winningPositions++;
             }
+        }
 
-            return score;
-        }*/
+        // Assign scores based on the number of winning positions
+        int score = 0;
+        if (winningPositions > 0) {
+            score += winningPositions * 1000;
+        }
 
+        return score;
+    }*/
 
-        /*private int evaluateLine(String cell1, String cell2, String cell3) {
-            int score = 0;
 
-            // Count the number of X's and O's in the line
-            int playerCount = 0;
-            int opponentCount = 0;
-            for (String cell : new String[]{cell1, cell2, cell3}) {
-                if (cell.equals(Integer.toString(player))) {
-                    playerCount++;
-                } else if (cell.equals(Integer.toString(opponent))) {
-                    opponentCount++;
-                }
-            }
+    /*private int evaluateLine(String cell1, String cell2, String cell3) {
+        int score = 0;
 
-           /* // Assign scores based on the counts
-            if (playerCount == 3) {
-                score = 100; // Player wins
-            } else if (opponentCount == 3) {
-                score = -100; // Opponent wins
-            } else if (playerCount == 2 && opponentCount == 0) {
-                score = 10; // Two in a row for player
-            } else if (opponentCount == 2 && playerCount == 0) {
-                score = -10; // Two in a row for opponent
-            }*/
-        // Assign scores based on the presence of player's and opponent's marks in the line
-           /* if (playerCount == 3) {
-                score += 1000; // Player wins the line
-            } else if (opponentCount == 3) {
-                score -= 1000; // Opponent wins the line
-            } else if (playerCount == 2 && opponentCount == 0) {
-                score += 100; // Two in a row for player
-            } else if (opponentCount == 2 && playerCount == 0) {
-                score -= 100; // Two in a row for opponent, consider blocking
-            } else if (playerCount == 1 && opponentCount == 0) {
-                score += 10; // One in a row for player
-            } else if (opponentCount == 1 && playerCount == 0) {
-                score -= 10; // One in a row for opponent
-            } else if (playerCount == 0 && opponentCount == 1) {
-                score -= 5; // Opponent has one in a row, consider blocking
+        // Count the number of X's and O's in the line
+        int playerCount = 0;
+        int opponentCount = 0;
+        for (String cell : new String[]{cell1, cell2, cell3}) {
+            if (cell.equals(Integer.toString(player))) {
+                playerCount++;
+            } else if (cell.equals(Integer.toString(opponent))) {
+                opponentCount++;
             }
+        }
 
-            return score;
+       /* // Assign scores based on the counts
+        if (playerCount == 3) {
+            score = 100; // Player wins
+        } else if (opponentCount == 3) {
+            score = -100; // Opponent wins
+        } else if (playerCount == 2 && opponentCount == 0) {
+            score = 10; // Two in a row for player
+        } else if (opponentCount == 2 && playerCount == 0) {
+            score = -10; // Two in a row for opponent
         }*/
+    // Assign scores based on the presence of player's and opponent's marks in the line
+       /* if (playerCount == 3) {
+            score += 1000; // Player wins the line
+        } else if (opponentCount == 3) {
+            score -= 1000; // Opponent wins the line
+        } else if (playerCount == 2 && opponentCount == 0) {
+            score += 100; // Two in a row for player
+        } else if (opponentCount == 2 && playerCount == 0) {
+            score -= 100; // Two in a row for opponent, consider blocking
+        } else if (playerCount == 1 && opponentCount == 0) {
+            score += 10; // One in a row for player
+        } else if (opponentCount == 1 && playerCount == 0) {
+            score -= 10; // One in a row for opponent
+        } else if (playerCount == 0 && opponentCount == 1) {
+            score -= 5; // Opponent has one in a row, consider blocking
+        }
 
-        private Move findBestMove(GameSimulator simulator,int depth)
-        {
-            player = currentPlayer;
-            opponent = (player == 0) ? 1 : 0;
+        return score;
+    }*/
 
-            int bestVal = Integer.MIN_VALUE;
-            Move bestMove = new Move();
-            bestMove.x = -1;
-            bestMove.y = -1;
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+    private IMove findBestMove(int depth)
+    {
+        player = simulator.getCurrentPlayer();
+        opponent = (player == 0) ? 1 : 0;
 
-            String[][] board = getBoard(simulator);
+        int bestVal = Integer.MIN_VALUE;
+        int bestMove = -1;
+        int[] moves = moveBuffers[0];
+        int count = simulator.availableMovesInto(moves);
 
+        String[][] board = getBoard();
 
 
-            // Traverse all cells, evaluate minimax function for all empty cells. And return the cell
-            // with optimal value.
-            for (IMove move : moves) {
-                // Current state clone
-                GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                // Make the move
-                newSimulator.updateGame(move);
 
-                // compute evaluation function for this move.
-                int moveVal = minimax(newSimulator, depth, Integer.MIN_VALUE, Integer.MAX_VALUE, false);
+        // Traverse all cells, evaluate minimax function for all empty cells. And return the cell
+        // with optimal value.
+        for (int i = 0; i < count; i++) {
+            // Make the move
+            simulator.play(moves[i]);
 
-                // If the value of the current move is more than the best value, then update best
+            // compute evaluation function for this move.
+            int moveVal = minimax(depth, Integer.MIN_VALUE, Integer.MAX_VALUE, false, 1);
+            simulator.undo();
 
-                if (moveVal > bestVal) {
-                    bestMove.x = move.getX();
-                    bestMove.y = move.getY();
-                    bestVal = moveVal;
-                }
+            // If the value of the current move is more than the best value, then update best
+
+            if (moveVal > bestVal) {
+                bestMove = moves[i];
+                bestVal = moveVal;
             }
-            System.out.println("best score from bestMove" + bestVal);
-            System.out.println("best move from bestMove" + bestMove);
-            return bestMove;
         }
+        IMove best = bestMove < 0 ? new Move(-1, -1) : Move.of(bestMove);
+        System.out.println("best score from bestMove" + bestVal);
+        System.out.println("best move from bestMove" + best);
+        return best;
+    }
 
-        private String[][] getBoard(GameSimulator simulator){
-
-            List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
-            String[][] BigBoard = simulator.getCurrentState().getField().getBoard();
-            int localX = moves.get(0).getX() % 3;
-            int localY = moves.get(0).getY() % 3;
-            int startX = moves.get(0).getX() - (localX);
-            int startY = moves.get(0).getY() - (localY);
-            String[][] board = new String[3][3];
-
-            board[0][0] = BigBoard[startX][startY];
-            board[0][1] = BigBoard[startX][startY +1];
-            board[0][2] = BigBoard[startX][startY +2];
-
-            board[1][0] = BigBoard[startX+1][startY];
-            board[1][1] = BigBoard[startX+1][startY +1];
-            board[1][2] = BigBoard[startX+1][startY +2];
-
-            board[2][0] = BigBoard[startX+2][startY];
-            board[2][1] = BigBoard[startX+2][startY +1];
-            board[2][2] = BigBoard[startX+2][startY +2];
-
-            return board;
-        }
+    private String[][] getBoard(){
 
+        List<IMove> moves = simulator.getCurrentState().getField().getAvailableMoves();
+        String[][] BigBoard = simulator.getCurrentState().getField().getBoard();
+        int localX = moves.get(0).getX() % 3;
+        int localY = moves.get(0).getY() % 3;
+        int startX = moves.get(0).getX() - (localX);
+        int startY = moves.get(0).getY() - (localY);
+        String[][] board = new String[3][3];
 
+        board[0][0] = BigBoard[startX][startY];
+        board[0][1] = BigBoard[startX][startY +1];
+        board[0][2] = BigBoard[startX][startY +2];
 
+        board[1][0] = BigBoard[startX+1][startY];
+        board[1][1] = BigBoard[startX+1][startY +1];
+        board[1][2] = BigBoard[startX+1][startY +2];
 
+        board[2][0] = BigBoard[startX+2][startY];
+        board[2][1] = BigBoard[startX+2][startY +1];
+        board[2][2] = BigBoard[startX+2][startY +2];
 
+        return board;
     }
 
 
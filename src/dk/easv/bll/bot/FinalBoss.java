@@ -1,31 +1,32 @@
 package dk.easv.bll.bot;
 
+import dk.easv.bll.field.Cell;
 import dk.easv.bll.field.IField;
-import dk.easv.bll.game.GameState;
+import dk.easv.bll.game.GameManager;
+import dk.easv.bll.game.GameSimulator;
 import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.MoveOrdering;
+import dk.easv.bll.game.TranspositionTable;
 import dk.easv.bll.move.IMove;
 
-import java.sql.SQLOutput;
-import java.util.*;
-
-import static dk.easv.bll.field.IField.AVAILABLE_FIELD;
-import static dk.easv.bll.game.GameManager.isWin;
-
 public class FinalBoss implements IBot {
     final int moveTimeMs = 1000;
     private String BOT_NAME = getClass().getSimpleName();
+    private static final int MAX_DEPTH = 7;
 
+    private int player;
+    private int opponent;
 
-    private GameSimulator createSimulator(IGameState state) {
-        GameSimulator simulator = new GameSimulator(new GameState());
-        simulator.setGameOver(GameOverState.Active);
-        simulator.setCurrentPlayer(state.getMoveNumber() % 2);
-        simulator.getCurrentState().setRoundNumber(state.getRoundNumber());
-        simulator.getCurrentState().setMoveNumber(state.getMoveNumber());
-        simulator.getCurrentState().getField().setBoard(state.getField().getBoard());
-        simulator.getCurrentState().getField().setMacroboard(state.getField().getMacroboard());
-        return simulator;
-    }
+    // The search plays and takes back moves on this simulator, one move buffer per ply
+    private GameSimulator simulator;
+    private final int[][] moveBuffers = new int[MAX_DEPTH + 2][81];
+
+    // Results of positions already searched, kept for the whole game. The score is
+    // the best child value before this node's own evaluation is added.
+    private final TranspositionTable table = new TranspositionTable(18);
+    // Mixed into the key, a position is scored differently for the maximizing side
+    private static final long MAXIMIZING_KEY = 0x5DEECE66DL * 0x9E3779B97F4A7C15L;
+    private final MoveOrdering ordering = new MoveOrdering(MAX_DEPTH + 1);
 
     @Override
     public IMove doMove(IGameState state) {
@@ -33,392 +34,195 @@ public class FinalBoss implements IBot {
     }
 
     private IMove calculateWinningMove(IGameState state){
-        int maxDepth = 7;
+        simulator = new GameSimulator(state);
+        ordering.nextSearch();
 
-        List<IMove> availableMoves = state.getField().getAvailableMoves();
+        int[] availableMoves = moveBuffers[0];
+        int count = simulator.availableMovesInto(availableMoves);
 
-        IMove bestMove = null;
+        int bestMove = -1;
         int bestScore = Integer.MIN_VALUE;
 
-        for (IMove move : availableMoves) {
-            // Clone the current state
-            GameSimulator simulator = createSimulator(state);
-            simulator.updateGame(move);
+        for (int i = 0; i < count; i++) {
+            simulator.play(availableMoves[i]);
 
             // Evaluate the move using minimax
-            int score = simulator.minimax(simulator, maxDepth, Integer.MIN_VALUE, Integer.MAX_VALUE, true, availableMoves);
+            int score = minimax(MAX_DEPTH, Integer.MIN_VALUE, Integer.MAX_VALUE, true, availableMoves, count, 0);
+            simulator.undo();
 
             // If the score is better than the current best, update the best move
             if (score > bestScore) {
                 bestScore = score;
-                bestMove = move;
+                bestMove = availableMoves[i];
             }
         }
-        return bestMove;
+        return bestMove < 0 ? null : GameSimulator.toMove(bestMove);
     }
 
-
-    /*
-        The code below is a simulator for simulation of gameplay. This is needed for AI.
-
-        It is put here to make the Bot independent of the GameManager and its subclasses/enums
-
-        Now this class is only dependent on a few interfaces: IMove, IField, and IGameState
-
-        You could say it is self-contained. The drawback is that if the game rules change, the simulator must be
-        changed accordingly, making the code redundant.
-
-     */
-
     @Override
     public String getBotName() {
         return BOT_NAME;
     }
 
-    public enum GameOverState {
-        Active,
-        Win,
-        Tie
-    }
-
-    public class Move implements IMove {
-        int x = 0;
-        int y = 0;
-
-        public Move(int x, int y) {
-            this.x = x;
-            this.y = y;
-        }
-
-        public Move() {
-
-        }
-
-        @Override
-        public int getX() {
-            return x;
-        }
-
-        @Override
-        public int getY() {
-            return y;
-        }
-
-
-        @Override
-        public String toString() {
-            return "(" + x + "," + y + ")";
-        }
-
-        @Override
-        public boolean equals(Object o) {
-            if (this == o) return true;
-            if (o == null || getClass() != o.getClass()) return false;
-            Move move = (Move) o;
-            return x == move.x && y == move.y;
-        }
-        //
-        @Override
-        public int hashCode() {
-            return Objects.hash(x, y);
-        }
-    }
-
-
-    class GameSimulator {
-        private final IGameState currentState;
-        private int currentPlayer = 0; //player0 == 0 && player1 == 1
-        private int player;
-        private int opponent;
-        private volatile GameOverState gameOver = GameOverState.Active;
-
-        public void setGameOver(GameOverState state) {
-            gameOver = state;
-        }
-
-        public GameOverState getGameOver() {
-            return gameOver;
-        }
-
-        public void setCurrentPlayer(int player) {
-            currentPlayer = player;
-        }
-
-        public IGameState getCurrentState() {
-            return currentState;
-        }
-
-        public GameSimulator(IGameState currentState) {
-            this.currentState = currentState;
-        }
-
-        public Boolean updateGame(IMove move) {
-            if (!verifyMoveLegality(move))
-                return false;
-
-            updateBoard(move);
-            currentPlayer = (currentPlayer + 1) % 2;
-
-            return true;
-        }
+    /*
+        The search runs on the shared GameSimulator from dk.easv.bll.game, taking every move back
+        after it has been searched instead of cloning the state for each node.
 
-        private Boolean verifyMoveLegality(IMove move) {
-            IField field = currentState.getField();
-            boolean isValid = field.isInActiveMicroboard(move.getX(), move.getY());
+        A move that is not legal in the position is searched as if it was passed, like before.
 
-            if (isValid && (move.getX() < 0 || 9 <= move.getX())) isValid = false;
-            if (isValid && (move.getY() < 0 || 9 <= move.getY())) isValid = false;
+        Below the root moves, a position is looked up in the transposition table first. An entry
+        searched at least as deep whose score is exact, or a bound outside the window, is used
+        instead of searching the moves again. Otherwise the moves are searched in the order of
+        MoveOrdering, starting with the best move the table has for the position. The moves of
+        the first level are the root moves and not the position's own, so that level is not
+        stored or ordered.
+     */
+    private int minimax(int depth, int alpha, int beta, boolean isMaximizing, int[] availableMoves, int count, int ply){
 
-            if (isValid && !field.getBoard()[move.getX()][move.getY()].equals(IField.EMPTY_FIELD))
-                isValid = false;
+        int evaluationOfPosition = 0;
 
-            return isValid;
+        if (depth == 0 || simulator.getGameOver() != GameManager.GameOverState.Active) {
+            // If at max depth or game over, evaluate the board state
+            evaluationOfPosition += evaluate(availableMoves, count);
+            return evaluationOfPosition;
         }
 
-        private void updateBoard(IMove move) {
-            String[][] board = currentState.getField().getBoard();
-            board[move.getX()][move.getY()] = currentPlayer + "";
-            currentState.setMoveNumber(currentState.getMoveNumber() + 1);
-            if (currentState.getMoveNumber() % 2 == 0) {
-                currentState.setRoundNumber(currentState.getRoundNumber() + 1);
-            }
-            checkAndUpdateIfWin(move);
-            updateMacroboard(move);
+        int evaluation = evaluate(availableMoves, count);
+        int[] nextMoves = moveBuffers[ply + 1];
 
+        long key = simulator.getHash() ^ (isMaximizing ? MAXIMIZING_KEY : 0);
+        if (ply > 0) {
+            long entry = table.probe(key);
+            if (TranspositionTable.isCutoff(entry, depth, alpha, beta))
+                return isMaximizing ? TranspositionTable.score(entry) + evaluation : TranspositionTable.score(entry) - evaluation;
+            // After evaluate, it looks at the first move to find the micro board to score
+            ordering.order(simulator, availableMoves, count, TranspositionTable.move(entry), ply);
         }
+        int alphaBefore = alpha;
+        int betaBefore = beta;
+        int bestMove = -1;
 
-        private void checkAndUpdateIfWin(IMove move) {
-            String[][] macroBoard = currentState.getField().getMacroboard();
-            int macroX = move.getX() / 3;
-            int macroY = move.getY() / 3;
-
-            if (macroBoard[macroX][macroY].equals(IField.EMPTY_FIELD) ||
-                    macroBoard[macroX][macroY].equals(AVAILABLE_FIELD)) {
-
-                String[][] board = getCurrentState().getField().getBoard();
+        if (isMaximizing) {
+            int bestMax = Integer.MIN_VALUE;
+            for (int i = 0; i < count; i++) {
+                boolean played = simulator.play(availableMoves[i]);
 
-                if (isWin(board, move, "" + currentPlayer))
-                    macroBoard[macroX][macroY] = currentPlayer + "";
-                else if (isTie(board, move))
-                    macroBoard[macroX][macroY] = "TIE";
+                int nextCount = simulator.availableMovesInto(nextMoves);
 
-                //Check macro win
-                if (isWin(macroBoard,new Move(macroX, macroY), "" + currentPlayer))
-                    gameOver = GameOverState.Win;
-                else if (isTie(macroBoard,new Move(macroX, macroY)))
-                    gameOver = GameOverState.Tie;
-            }
-
-        }
-
-        private boolean isTie(String[][] board, IMove move) {
-            int localX = move.getX() % 3;
-            int localY = move.getY() % 3;
-            int startX = move.getX() - (localX);
-            int startY = move.getY() - (localY);
-
-            for (int i = startX; i < startX + 3; i++) {
-                for (int k = startY; k < startY + 3; k++) {
-                    if (board[i][k].equals(AVAILABLE_FIELD) ||
-                            board[i][k].equals(IField.EMPTY_FIELD))
-                        return false;
+                int eval = minimax(depth - 1, alpha, beta, false, nextMoves, nextCount, ply + 1);
+                if (played)
+                    simulator.undo();
+                if (eval > bestMax) {
+                    bestMax = eval;
+                    bestMove = availableMoves[i];
                 }
-            }
-            return true;
-        }
-
-
-        public boolean isWin(String[][] board, IMove move, String currentPlayer) {
-            int localX = move.getX() % 3;
-            int localY = move.getY() % 3;
-            int startX = move.getX() - (localX);
-            int startY = move.getY() - (localY);
-
-            //check col
-            for (int i = startY; i < startY + 3; i++) {
-                if (!board[move.getX()][i].equals(currentPlayer))
-                    break;
-                if (i == startY + 3 - 1) return true;
-            }
-
-            //check row
-            for (int i = startX; i < startX + 3; i++) {
-                if (!board[i][move.getY()].equals(currentPlayer))
+                alpha = Math.max(alpha, eval);
+                if (beta <= alpha) {
+                    if (ply > 0)
+                        ordering.cutoff(simulator.getCurrentPlayer(), availableMoves[i], depth, ply);
                     break;
-                if (i == startX + 3 - 1) return true;
-            }
-
-            //check diagonal
-            if (localX == localY) {
-                //we're on a diagonal
-                int y = startY;
-                for (int i = startX; i < startX + 3; i++) {
-                    if (!board[i][y++].equals(currentPlayer))
-                        break;
-                    if (i == startX + 3 - 1) return true;
                 }
             }
-
-            //check anti diagonal
-            if (localX + localY == 3 - 1) {
-                int less = 0;
-                for (int i = startX; i < startX + 3; i++) {
-                    if (!board[i][(startY + 2) - less++].equals(currentPlayer))
-                        break;
-                    if (i == startX + 3 - 1) return true;
+            if (ply > 0)
+                table.store(key, depth, TranspositionTable.boundOf(bestMax, alphaBefore, betaBefore), bestMax, bestMove);
+            return bestMax + evaluation;
+        } else {
+            int bestMin = Integer.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                boolean played = simulator.play(availableMoves[i]);
+
+                int nextCount = simulator.availableMovesInto(nextMoves);
+
+                int eval = minimax(depth - 1, alpha, beta, true, nextMoves, nextCount, ply + 1);
+                if (played)
+                    simulator.undo();
+                if (eval < bestMin) {
+                    bestMin = eval;
+                    bestMove = availableMoves[i];
                 }
-            }
-            return false;
-        }
-
-        private void updateMacroboard(IMove move) {
-            String[][] macroBoard = currentState.getField().getMacroboard();
-            for (int i = 0; i < macroBoard.length; i++)
-                for (int k = 0; k < macroBoard[i].length; k++) {
-                    if (macroBoard[i][k].equals(AVAILABLE_FIELD))
-                        macroBoard[i][k] = IField.EMPTY_FIELD;
+                beta = Math.min(beta, eval);
+                if (beta <= alpha) {
+                    if (ply > 0)
+                        ordering.cutoff(simulator.getCurrentPlayer(), availableMoves[i], depth, ply);
+                    break;
                 }
-
-            int xTrans = move.getX() % 3;
-            int yTrans = move.getY() % 3;
-
-            if (macroBoard[xTrans][yTrans].equals(IField.EMPTY_FIELD))
-                macroBoard[xTrans][yTrans] = AVAILABLE_FIELD;
-            else {
-                // Field is already won, set all fields not won to avail.
-                for (int i = 0; i < macroBoard.length; i++)
-                    for (int k = 0; k < macroBoard[i].length; k++) {
-                        if (macroBoard[i][k].equals(IField.EMPTY_FIELD))
-                            macroBoard[i][k] = AVAILABLE_FIELD;
-                    }
             }
+            if (ply > 0)
+                table.store(key, depth, TranspositionTable.boundOf(bestMin, alphaBefore, betaBefore), bestMin, bestMove);
+            return bestMin - evaluation;
         }
+    }
 
-        private int minimax(GameSimulator simulator, int depth, int alpha, int beta, boolean isMaximizing, List<IMove> availableMoves){
-
-            int evaluationOfPosition = 0;
-
-            String[][] board = simulator.getCurrentState().getField().getBoard();
 
-            if (depth == 0 || simulator.getGameOver() != GameOverState.Active) {
-                // If at max depth or game over, evaluate the board state
-                evaluationOfPosition += evaluate(simulator, availableMoves);
-                return evaluationOfPosition;
-            }
+    private int evaluate(int[] availableMoves, int count) {
+        if(count > 0) {
+            int x = availableMoves[0] / 9;
+            int y = availableMoves[0] % 9;
+            int startX = x - (x % 3);
+            int startY = y - (y % 3);
 
-            int evaluation = evaluate(simulator, availableMoves);
+            //do for loop with the board and the current available moves, one by one
 
-            if (isMaximizing) {
-                int bestMax = Integer.MIN_VALUE;
-                for (IMove move : availableMoves) {
-                    // Current state clone
-                    GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                    newSimulator.updateGame(move);
+            IField field = simulator.getCurrentState().getField();
+            int score = 0;
 
-                    // Pass a sublist of availableMoves to the recursive call
-                    List<IMove> nextOpponentAvailableMoves = newSimulator.getCurrentState().getField().getAvailableMoves();
 
-                    int eval = minimax(newSimulator, depth - 1, alpha, beta, false, nextOpponentAvailableMoves);
-                    bestMax = Math.max(bestMax, eval);
-                    alpha = Math.max(alpha, eval);
-                    if (beta <= alpha)
-                        break;
-                }
-                return bestMax + evaluation;
-            } else {
-                int bestMin = Integer.MAX_VALUE;
-                for (IMove move : availableMoves) {
-                    // Current state clone
-                    GameSimulator newSimulator = createSimulator(simulator.getCurrentState());
-                    newSimulator.updateGame(move);
-
-                    // Pass a sublist of availableMoves to the recursive call
-                    List<IMove> nextAvailableMoves = newSimulator.getCurrentState().getField().getAvailableMoves();
-
-                    int eval = minimax(newSimulator, depth - 1, alpha, beta, true, nextAvailableMoves);
-                    bestMin = Math.min(bestMin, eval);
-                    beta = Math.min(beta, eval);
-                    if (beta <= alpha)
-                        break;
-                }
-                return bestMin - evaluation;
+            for (int row = startX; row < startX + 2; row++) {
+                score += evaluateLine(field.getCell(row, startY), field.getCell(row, startY + 1), field.getCell(row, startY + 2));
             }
-        }
-
-
-        private int evaluate(GameSimulator simulator, List<IMove> availableMoves) {
-            List<IMove> moves = availableMoves;
-            if(!moves.isEmpty()) {
-                int localX = moves.get(0).getX() % 3;
-                int localY = moves.get(0).getY() % 3;
-                int startX = moves.get(0).getX() - (localX);
-                int startY = moves.get(0).getY() - (localY);
-
-                int x = moves.get(0).getX();
-                int y = moves.get(0).getY();
-
-                //do for loop with the board and the current available moves, one by one
-
-                String[][] board = simulator.getCurrentState().getField().getBoard();
-                int score = 0;
 
 
-                for (int row = startX; row < startX + 2; row++) {
-                    score += evaluateLine(board[row][startY], board[row][startY + 1], board[row][startY + 2]);
-                }
-
-
-                for (int col = startY; col < startY + 3; col++) {
-                    score += evaluateLine(board[startX][col], board[startX + 1][col], board[startX + 2][col]);
-                }
+            for (int col = startY; col < startY + 3; col++) {
+                score += evaluateLine(field.getCell(startX, col), field.getCell(startX + 1, col), field.getCell(startX + 2, col));
+            }
 
 
-                score += evaluateLine(board[startX][startY], board[startX + 1][startY + 1], board[startX + 2][startY + 2]);
-                score += evaluateLine(board[startX][startY + 2], board[startX + 1][startY + 1], board[startX + 2][startY]);
+            score += evaluateLine(field.getCell(startX, startY), field.getCell(startX + 1, startY + 1), field.getCell(startX + 2, startY + 2));
+            score += evaluateLine(field.getCell(startX, startY + 2), field.getCell(startX + 1, startY + 1), field.getCell(startX + 2, startY));
 
-                return score;
-            }
-            return 0;
+            return score;
         }
+        return 0;
+    }
 
-        private int evaluateLine(String cell1, String cell2, String cell3) {
-            int score = 0;
-
-            // Count the number of X's and O's in the line
-            int playerCount = 0;
-            int opponentCount = 0;
-            for (String cell : new String[]{cell1, cell2, cell3}) {
-                if (cell.equals(Integer.toString(player))) {
-                    playerCount++;
-                } else if (cell.equals(Integer.toString(opponent))) {
-                    opponentCount++;
-                }
+    private int evaluateLine(byte cell1, byte cell2, byte cell3) {
+        int score = 0;
+
+        // Count the number of X's and O's in the line
+        int playerCount = 0;
+        int opponentCount = 0;
+        for (int i = 0; i < 3; i++) {
+            byte cell = i == 0 ? cell1 : i == 1 ? cell2 : cell3;
+            if (cell == Cell.ofPlayer(player)) {
+                playerCount++;
+            } else if (cell == Cell.ofPlayer(opponent)) {
+                opponentCount++;
             }
+        }
 
-            // Assign scores based on the presence of player's and opponent's marks in the line
-            if (playerCount == 3) {
-                score += 1000;
-                return score; // Player wins the line
-            } else if (opponentCount == 3) {
-                score -= 1000; // Opponent wins the line
-                return score;
-            } else if (playerCount == 2 && opponentCount == 0) {
-                score += 100; // Two in a row for player
-                return score;
-            } else if (opponentCount == 2 && playerCount == 0) {
-                score -= 100; // Two in a row for opponent, consider blocking
-                return score;
-            } else if (playerCount == 1 && opponentCount == 0) {
-                score += 10; // One in a row for player
-                return score;
-            } else if (opponentCount == 1 && playerCount == 0) {
-                score -= 10; // One in a row for opponent
-                return score;
-            } else if (playerCount == 0 && opponentCount == 1) {
-                score -= 5; // Opponent has one in a row, consider blocking
-                return score;
-            }
+        // Assign scores based on the presence of player's and opponent's marks in the line
+        if (playerCount == 3) {
+            score += 1000;
+            return score; // Player wins the line
+        } else if (opponentCount == 3) {
+            score -= 1000; // Opponent wins the line
+            return score;
+        } else if (playerCount == 2 && opponentCount == 0) {
+            score += 100; // Two in a row for player
+            return score;
+        } else if (opponentCount == 2 && playerCount == 0) {
+            score -= 100; // Two in a row for opponent, consider blocking
+            return score;
+        } else if (playerCount == 1 && opponentCount == 0) {
+            score += 10; // One in a row for player
+            return score;
+        } else if (opponentCount == 1 && playerCount == 0) {
+            score -= 10; // One in a row for opponent
+            return score;
+        } else if (playerCount == 0 && opponentCount == 1) {
+            score -= 5; // Opponent has one in a row, consider blocking
             return score;
         }
+        return score;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,12 @@
+package dk.easv.bll.bot;
+
+/**
+ * PrincipalVariationBot searching on every core with Lazy SMP, the threads share
+ * one transposition table. See dk.easv.bll.game.LazySmpSearch.
+ */
+public class LazySmpPrincipalVariationBot extends PrincipalVariationBot {
+
+    public LazySmpPrincipalVariationBot() {
+        super(Runtime.getRuntime().availableProcessors());
+    }
+}
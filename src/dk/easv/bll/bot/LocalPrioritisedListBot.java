@@ -39,7 +39,7 @@ public class LocalPrioritisedListBot implements IBot {
                     int y = move[1]*3 + selectedMove[1];
                     if(state.getField().getBoard()[x][y].equals(IField.EMPTY_FIELD))
                     {
-                        return new Move(x,y);
+                        return Move.of(x,y);
                     }
                 }
             }
@@ -0,0 +1,162 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.MonteCarloTree;
+import dk.easv.bll.game.Position;
+import dk.easv.bll.game.RootParallelSearch;
+import dk.easv.bll.game.TreeParallelSearch;
+import dk.easv.bll.move.IMove;
+
+public class MonteCarloBot implements IBot {
+    private static final int DEFAULT_TIME_MS = 1000;
+    // Kept free of the time per move for building the tree and returning the move
+    private static final int MARGIN_MS = 20;
+    private String BOT_NAME = getClass().getSimpleName();
+
+    /**
+     * How the search uses more than one thread.
+     */
+    protected enum Mode {
+        /** One tree per thread, merged at the root, see RootParallelSearch */
+        ROOT_PARALLEL,
+        /** One tree shared by all threads, see TreeParallelSearch */
+        TREE_PARALLEL
+    }
+
+    private final int threads;
+    private final Mode mode;
+    // Made on the first move when searching on more than one thread
+    private RootParallelSearch rootParallelSearch;
+    private TreeParallelSearch treeParallelSearch;
+    // The tree of the last move, searching goes on from it when it holds the next state
+    private MonteCarloTree tree;
+
+    // Pondering: searching the tree while the opponent thinks, off unless turned on
+    private boolean ponder;
+    private Thread ponderThread;
+    private volatile boolean stopPondering;
+
+    public MonteCarloBot() {
+        this(1, Mode.ROOT_PARALLEL);
+    }
+
+    /**
+     * @param threads the number of threads to search on
+     * @param mode how the threads share the work, not used for one thread
+     */
+    protected MonteCarloBot(int threads, Mode mode) {
+        this.threads = threads;
+        this.mode = mode;
+    }
+
+    /**
+     * Turns pondering on or off. When on, the single tree search goes on in the
+     * background after a move has been returned, from the position after that move,
+     * until the next doMove or stopPondering, and for at most one time per move.
+     * Any reply the opponent plays then starts with the playouts made meanwhile.
+     * It does not start when every reply of the opponent ends the game. It uses
+     * a core while the opponent is thinking, so it should only be turned on where
+     * that is allowed.
+     * Bots searching on more than one thread do not ponder.
+     */
+    protected void setPondering(boolean ponder) {
+        this.ponder = ponder;
+        if (!ponder)
+            stopPondering();
+    }
+
+    /**
+     * Stops the background search and waits until it has stopped. Does nothing
+     * when the bot is not pondering.
+     */
+    public void stopPondering() {
+        Thread thread = ponderThread;
+        if (thread == null)
+            return;
+        stopPondering = true;
+        boolean interrupted = false;
+        while (thread.isAlive()) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted)
+            Thread.currentThread().interrupt();
+        ponderThread = null;
+    }
+
+    private void startPondering(IGameState state, IMove move, int timeMs) {
+        Position next = Position.of(state).play(move);
+        if (onlyEndingReplies(next) || !tree.advance(next))
+            return;
+        MonteCarloTree ponderTree = tree;
+        // The next doMove normally comes within one time per move, stop by then if it does not
+        long limit = System.nanoTime() + timeMs * 1_000_000L;
+        stopPondering = false;
+        ponderThread = new Thread(() -> {
+            while (!stopPondering && System.nanoTime() - limit < 0)
+                ponderTree.search(64);
+        }, BOT_NAME + " pondering");
+        ponderThread.setDaemon(true);
+        ponderThread.setPriority(Thread.MIN_PRIORITY);
+        ponderThread.start();
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        stopPondering();
+        long start = System.nanoTime();
+        int timeMs = state.getTimePerMove() > 0 ? state.getTimePerMove() : DEFAULT_TIME_MS;
+        long deadline = start + Math.max(1, timeMs - MARGIN_MS) * 1_000_000L;
+
+        if (threads > 1 && mode == Mode.ROOT_PARALLEL) {
+            if (rootParallelSearch == null)
+                rootParallelSearch = new RootParallelSearch(threads);
+            IMove move = rootParallelSearch.search(state, deadline);
+            if (endsGame(state, move))
+                rootParallelSearch = null; // the trees are not needed any more
+            return move;
+        }
+        if (threads > 1 && mode == Mode.TREE_PARALLEL) {
+            if (treeParallelSearch == null)
+                treeParallelSearch = new TreeParallelSearch(threads);
+            IMove move = treeParallelSearch.search(state, deadline);
+            if (endsGame(state, move))
+                treeParallelSearch = null; // the tree is not needed any more
+            return move;
+        }
+        if (tree == null || !tree.advance(state))
+            tree = new MonteCarloTree(state);
+        tree.searchUntil(deadline);
+        IMove move = tree.getBestMove(); // the most visited move, null when the game is over
+        if (endsGame(state, move))
+            tree = null; // the tree is not needed any more
+        else if (ponder)
+            startPondering(state, move, timeMs);
+        return move;
+    }
+
+    // True when the game is over or every reply ends it, so the bot will not move from here again
+    private static boolean onlyEndingReplies(Position position) {
+        if (position.isGameOver())
+            return true;
+        int[] replies = new int[81];
+        int count = position.availableMovesInto(replies);
+        for (int i = 0; i < count; i++)
+            if (!position.play(replies[i]).isGameOver())
+                return false;
+        return true;
+    }
+
+    // True when there is no move or playing it ends the game, the bot is not asked again then
+    private static boolean endsGame(IGameState state, IMove move) {
+        return move == null || Position.of(state).play(move).isGameOver();
+    }
+
+    @Override
+    public String getBotName() {
+        return BOT_NAME;
+    }
+}
@@ -0,0 +1,12 @@
+package dk.easv.bll.bot;
+
+/**
+ * MonteCarloBot that goes on searching on one thread while the opponent thinks.
+ * Only for games where a bot may use the time of the other bot.
+ */
+public class PonderingMonteCarloBot extends MonteCarloBot {
+
+    public PonderingMonteCarloBot() {
+        setPondering(true);
+    }
+}
@@ -0,0 +1,64 @@
+package dk.easv.bll.bot;
+
+import dk.easv.bll.field.LineEvaluator;
+import dk.easv.bll.game.IEvaluator;
+import dk.easv.bll.game.IGameState;
+import dk.easv.bll.game.LazySmpSearch;
+import dk.easv.bll.game.Position;
+import dk.easv.bll.game.PrincipalVariationSearch;
+import dk.easv.bll.game.SearchDeadline;
+import dk.easv.bll.move.IMove;
+
+public class PrincipalVariationBot implements IBot {
+    final int moveTimeMs = 950;
+    private String BOT_NAME = getClass().getSimpleName();
+
+    // Any evaluation with the signature of IEvaluator plugs in here, this one scores the lines of the whole board
+    private static final IEvaluator EVALUATOR = (simulator, moves, count, player) ->
+            LineEvaluator.DEFAULT.evaluate(simulator.getCurrentState().getField(), player);
+
+    private final int threads;
+    // Made on the first move, the one that fits the number of threads
+    private PrincipalVariationSearch search;
+    private LazySmpSearch lazySmpSearch;
+
+    public PrincipalVariationBot() {
+        this(1);
+    }
+
+    /**
+     * @param threads the number of threads to search on, more than one searches with Lazy SMP
+     */
+    protected PrincipalVariationBot(int threads) {
+        this.threads = threads;
+    }
+
+    @Override
+    public IMove doMove(IGameState state) {
+        long deadline = System.nanoTime() + SearchDeadline.budgetMs(state, moveTimeMs) * 1_000_000L;
+        if (threads > 1) {
+            if (lazySmpSearch == null)
+                lazySmpSearch = new LazySmpSearch(EVALUATOR, threads);
+            IMove move = lazySmpSearch.search(state, deadline);
+            if (endsGame(state, move))
+                lazySmpSearch = null; // the table is not needed any more
+            return move;
+        }
+        if (search == null)
+            search = new PrincipalVariationSearch(EVALUATOR);
+        IMove move = search.search(state, deadline);
+        if (endsGame(state, move))
+            search = null;
+        return move;
+    }
+
+    // True when there is no move or playing it ends the game, the bot is not asked again then
+    private static boolean endsGame(IGameState state, IMove move) {
+        return move == null || Position.of(state).play(move).isGameOver();
+    }
+
+    @Override
+    public String getBotName() {
+        return BOT_NAME;
+    }
+}
@@ -4,7 +4,6 @@ import dk.easv.bll.bot.IBot;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
 
-import java.util.List;
 import java.util.Random;
 
 public class RandomBot implements IBot {
@@ -20,12 +19,7 @@ public class RandomBot implements IBot {
      */
     @Override
     public IMove doMove(IGameState state) {
-        List<IMove> moves = state.getField().getAvailableMoves();
-        if (moves.size() > 0) {
-            return moves.get(rand.nextInt(moves.size())); /* get random move from available moves */
-        }
-
-        return null;
+        return state.getField().randomAvailableMove(rand); /* get random move from available moves, null if there are none */
     }
 
     @Override
@@ -18,12 +18,7 @@ public class RandomBotOnSteroids implements IBot {
         List<IMove> winMoves = getWinningMoves(state);
         if(!winMoves.isEmpty())
             return winMoves.get(0);
-        List<IMove> moves = state.getField().getAvailableMoves();
-        if (moves.size() > 0) {
-            return moves.get(rand.nextInt(moves.size())); /* get random move from available moves */
-        }
-
-        return null;
+        return state.getField().randomAvailableMove(rand); /* get random move from available moves, null if there are none */
 
     }
 
@@ -0,0 +1,12 @@
+package dk.easv.bll.bot;
+
+/**
+ * MonteCarloBot searching one tree per core, the trees are merged at the root
+ * when time is up. See dk.easv.bll.game.RootParallelSearch.
+ */
+public class RootParallelMonteCarloBot extends MonteCarloBot {
+
+    public RootParallelMonteCarloBot() {
+        super(Runtime.getRuntime().availableProcessors(), Mode.ROOT_PARALLEL);
+    }
+}
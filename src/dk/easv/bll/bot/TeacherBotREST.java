@@ -27,6 +27,9 @@ public class TeacherBotREST implements IBot{
     @Override
     public IMove doMove(IGameState state) {
         Gson gson = new Gson();
+        // Bitboard backed fields only fill their String views when asked for them
+        state.getField().getBoard();
+        state.getField().getMacroboard();
         String jsonState = gson.toJson(state);
 
         HttpRequest request =
@@ -0,0 +1,12 @@
+package dk.easv.bll.bot;
+
+/**
+ * MonteCarloBot with one search tree shared by a thread per core.
+ * See dk.easv.bll.game.TreeParallelSearch.
+ */
+public class TreeParallelMonteCarloBot extends MonteCarloBot {
+
+    public TreeParallelMonteCarloBot() {
+        super(Runtime.getRuntime().availableProcessors(), Mode.TREE_PARALLEL);
+    }
+}
@@ -0,0 +1,592 @@
+package dk.easv.bll.field;
+
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
+
+/**
+ * An IField that keeps the game as bitboards instead of Strings.
+ *
+ * Each player's stones are an 81 bit mask split over two longs. Micro board b
+ * (b = macroX*3 + macroY) occupies bits 9*b .. 9*b+8, so boards 0-6 live in the
+ * low word and boards 7-8 in the high word. Inside a micro board the cell
+ * (localX, localY) is bit localX*3 + localY, which is the same layout the
+ * macroboard status masks use, so WinTable serves both levels.
+ *
+ * The legal moves are kept as a second 81 bit mask, this one in square order
+ * (bit x*9 + y), and are updated whenever a move is played. getAvailableMoves
+ * builds a new list from that mask on every call; availableMovesInto and
+ * forEachAvailableMove read the mask without allocating.
+ *
+ * The String[][] board and macroboard are only views. They are not allocated
+ * until somebody asks for them, are rebuilt when asked for after the field has
+ * changed, and writing into them does not change the field - use
+ * setBoard/setMacroboard or play for that. Code that only reads cells should
+ * use getCell/getMacroCell, which work on the bits directly.
+ */
+public class BitboardField implements IField {
+
+    static final int MICRO_FULL = WinTable.FULL;
+
+    transient long low0, high0, low1, high1;
+    transient int won0, won1, tied;
+    transient int available = MICRO_FULL;
+    // Status kept up to date by play/undo: won0 | won1 | tied, and the number
+    // of stones in each micro board, 4 bits per board at bit 4*micro
+    transient int decided;
+    transient long fill;
+    // Legal squares, bit x*9 + y. Squares 0-63 in legalLow, 64-80 in legalHigh.
+    transient long legalLow, legalHigh;
+    // Zobrist key of the stones and available micro boards, see Zobrist
+    transient long hash;
+    private transient boolean viewDirty = true;
+
+    // Named as in Field so the views serialize the same way.
+    volatile String[][] board;
+    volatile String[][] macroBoard;
+
+    public BitboardField() {
+        clearBoard();
+    }
+
+    /**
+     * Snapshot of other: copies the primitive state only. The String views are
+     * left to be built on demand.
+     */
+    public BitboardField(BitboardField other) {
+        copyFrom(other);
+    }
+
+    /**
+     * Makes this field hold the same position as other, like the copy constructor
+     * but without allocating, so a search can reset a scratch field for every playout.
+     */
+    public void copyFrom(BitboardField other) {
+        low0 = other.low0;
+        high0 = other.high0;
+        low1 = other.low1;
+        high1 = other.high1;
+        won0 = other.won0;
+        won1 = other.won1;
+        tied = other.tied;
+        available = other.available;
+        decided = other.decided;
+        fill = other.fill;
+        legalLow = other.legalLow;
+        legalHigh = other.legalHigh;
+        hash = other.hash;
+        viewDirty = true;
+    }
+
+    /**
+     * @param field any field
+     * @return a BitboardField holding the same position, read through the cell codes
+     * unless field already is a BitboardField
+     */
+    public static BitboardField of(IField field) {
+        if (field instanceof BitboardField)
+            return new BitboardField((BitboardField) field);
+
+        BitboardField bitboard = new BitboardField();
+        bitboard.available = 0;
+        for (int i = 0; i < 9; i++)
+            for (int k = 0; k < 9; k++) {
+                byte cell = field.getCell(i, k);
+                if (cell == Cell.PLAYER_0 || cell == Cell.PLAYER_1)
+                    bitboard.setStone(cell - Cell.PLAYER_0, microIndex(i, k), cellIndex(i, k));
+            }
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                int bit = 1 << (i * 3 + k);
+                byte cell = field.getMacroCell(i, k);
+                if (cell == Cell.PLAYER_0) bitboard.won0 |= bit;
+                else if (cell == Cell.PLAYER_1) bitboard.won1 |= bit;
+                else if (cell == Cell.TIE) bitboard.tied |= bit;
+                else if (cell == Cell.AVAILABLE) bitboard.available |= bit;
+            }
+        bitboard.recountMicroboards();
+        bitboard.updateLegalMoves();
+        bitboard.hash = Zobrist.hash(bitboard);
+        return bitboard;
+    }
+
+    /**
+     * @param symmetry one of the 8 symmetries, see Symmetry
+     * @return a new field with the position rotated or mirrored by symmetry
+     */
+    public BitboardField transform(int symmetry) {
+        BitboardField result = new BitboardField();
+        for (int micro = 0; micro < 9; micro++) {
+            int to = Symmetry.applyToCell(symmetry, micro);
+            result.setMicroMask(0, to, Symmetry.applyToMask(symmetry, microMask(0, micro)));
+            result.setMicroMask(1, to, Symmetry.applyToMask(symmetry, microMask(1, micro)));
+        }
+        result.won0 = Symmetry.applyToMask(symmetry, won0);
+        result.won1 = Symmetry.applyToMask(symmetry, won1);
+        result.tied = Symmetry.applyToMask(symmetry, tied);
+        result.available = Symmetry.applyToMask(symmetry, available);
+        result.recountMicroboards();
+        result.updateLegalMoves();
+        result.hash = Zobrist.hash(result);
+        return result;
+    }
+
+    @Override
+    public IField copy() {
+        return new BitboardField(this);
+    }
+
+    /**
+     * @return the micro board (0..8) holding the square (x,y)
+     */
+    public static int microIndex(int x, int y) {
+        return (x / 3) * 3 + y / 3;
+    }
+
+    /**
+     * @return the cell (0..8) of the square (x,y) inside its micro board
+     */
+    public static int cellIndex(int x, int y) {
+        return (x % 3) * 3 + y % 3;
+    }
+
+    @Override
+    public void clearBoard() {
+        low0 = high0 = low1 = high1 = 0;
+        won0 = won1 = tied = 0;
+        available = MICRO_FULL;
+        decided = 0;
+        fill = 0;
+        updateLegalMoves();
+        hash = Zobrist.available(available);
+        viewDirty = true;
+    }
+
+    /**
+     * Places a stone for player and applies the rules: resolves the micro board
+     * it was placed in and selects the micro board(s) the opponent must play in.
+     * The move is expected to be legal.
+     * @param x Column
+     * @param y Row
+     * @param player 0 or 1
+     */
+    public void play(int x, int y, int player) {
+        int micro = microIndex(x, y);
+        int cell = cellIndex(x, y);
+        setStone(player, micro, cell);
+        fill += 1L << (micro * 4);
+
+        int bit = 1 << micro;
+        if (WinTable.isWinThrough(microMask(player, micro), cell)) {
+            if (player == 0) won0 |= bit;
+            else won1 |= bit;
+            decided |= bit;
+        }
+        else if (getFillCount(micro) == 9) {
+            tied |= bit;
+            decided |= bit;
+        }
+
+        int previousAvailable = available;
+        if ((decided & (1 << cell)) == 0)
+            available = 1 << cell;
+        else
+            available = ~decided & MICRO_FULL;
+        hash ^= Zobrist.stone(player, x * 9 + y)
+                ^ Zobrist.available(previousAvailable) ^ Zobrist.available(available);
+        updateLegalMoves();
+        viewDirty = true;
+    }
+
+    /**
+     * Takes back a move made with play. The micro board it was played in is
+     * open again afterwards, which holds for every legal move.
+     * @param x Column
+     * @param y Row
+     * @param previousAvailable getAvailableMicroboards() from before the move
+     */
+    public void undo(int x, int y, int previousAvailable) {
+        int micro = microIndex(x, y);
+        int player = getCell(x, y) == Cell.PLAYER_0 ? 0 : 1;
+        hash ^= Zobrist.stone(player, x * 9 + y)
+                ^ Zobrist.available(available) ^ Zobrist.available(previousAvailable);
+        int bit = ~(1 << micro);
+        long stone = micro < 7 ? 1L << (micro * 9 + cellIndex(x, y)) : 1L << ((micro - 7) * 9 + cellIndex(x, y));
+        if (micro < 7) {
+            low0 &= ~stone;
+            low1 &= ~stone;
+        }
+        else {
+            high0 &= ~stone;
+            high1 &= ~stone;
+        }
+        won0 &= bit;
+        won1 &= bit;
+        tied &= bit;
+        decided &= bit;
+        fill -= 1L << (micro * 4);
+        available = previousAvailable;
+        updateLegalMoves();
+        viewDirty = true;
+    }
+
+    @Override
+    public long getHash() {
+        return hash;
+    }
+
+    /**
+     * @return 9 bit mask of the micro boards that can be played in, bit macroX*3 + macroY
+     */
+    public int getAvailableMicroboards() {
+        return available;
+    }
+
+    /**
+     * Rebuilds the legal square mask from the free cells of the available micro boards,
+     * with one table read per board and word.
+     */
+    private void updateLegalMoves() {
+        long low = 0, high = 0;
+        int boards = available;
+        while (boards != 0) {
+            int micro = Integer.numberOfTrailingZeros(boards);
+            boards &= boards - 1;
+            int free = ~(microMask(0, micro) | microMask(1, micro)) & MICRO_FULL;
+            low |= LEGAL_LOW[micro][free];
+            high |= LEGAL_HIGH[micro][free];
+        }
+        legalLow = low;
+        legalHigh = high;
+    }
+
+    // LEGAL_LOW/HIGH[micro][free cells] is the legal square mask of one micro board.
+    // Each micro board is three runs of three squares, one per localX.
+    private static final long[][] LEGAL_LOW = new long[9][512];
+    private static final long[][] LEGAL_HIGH = new long[9][512];
+
+    static {
+        for (int micro = 0; micro < 9; micro++)
+            for (int free = 0; free < 512; free++) {
+                int firstSquare = (micro / 3) * 27 + (micro % 3) * 3;
+                for (int localX = 0; localX < 3; localX++) {
+                    long run = (free >>> (localX * 3)) & 7;
+                    int square = firstSquare + localX * 9;
+                    if (square < 64)
+                        LEGAL_LOW[micro][free] |= run << square;
+                    if (square > 61)
+                        LEGAL_HIGH[micro][free] |= square >= 64 ? run << (square - 64) : run >>> (64 - square);
+                }
+            }
+    }
+
+    /**
+     * @return the player (0 or 1) that has won the macroboard, or -1
+     */
+    public int getWinner() {
+        if (WinTable.isWin(won0)) return 0;
+        if (WinTable.isWin(won1)) return 1;
+        return -1;
+    }
+
+    /**
+     * @return true when every micro board is decided and nobody has won
+     */
+    public boolean isTie() {
+        return decided == MICRO_FULL && getWinner() < 0;
+    }
+
+    /**
+     * @param micro macroX*3 + macroY
+     * @return Cell.PLAYER_0 or Cell.PLAYER_1 when won, Cell.TIE when full, otherwise Cell.EMPTY
+     */
+    public byte getMicroStatus(int micro) {
+        int bit = 1 << micro;
+        if ((decided & bit) == 0) return Cell.EMPTY;
+        if ((won0 & bit) != 0) return Cell.PLAYER_0;
+        if ((won1 & bit) != 0) return Cell.PLAYER_1;
+        return Cell.TIE;
+    }
+
+    /**
+     * @return 9 bit mask of the micro boards that are won or tied
+     */
+    public int getDecidedMicroboards() {
+        return decided;
+    }
+
+    /**
+     * @param micro macroX*3 + macroY
+     * @return the number of stones in the micro board, 0..9
+     */
+    public int getFillCount(int micro) {
+        return (int) (fill >>> (micro * 4)) & 0xF;
+    }
+
+    // Rebuilds decided and fill after the whole position was replaced
+    private void recountMicroboards() {
+        decided = won0 | won1 | tied;
+        fill = 0;
+        for (int micro = 0; micro < 9; micro++) {
+            fill |= (long) Integer.bitCount(microMask(0, micro) | microMask(1, micro)) << (micro * 4);
+        }
+    }
+
+    /**
+     * @return 9 bit occupancy of player's stones in the given micro board
+     */
+    public int microMask(int player, int micro) {
+        long word;
+        int shift;
+        if (micro < 7) {
+            word = player == 0 ? low0 : low1;
+            shift = micro * 9;
+        }
+        else {
+            word = player == 0 ? high0 : high1;
+            shift = (micro - 7) * 9;
+        }
+        return (int) (word >>> shift) & MICRO_FULL;
+    }
+
+    private void setStone(int player, int micro, int cell) {
+        if (micro < 7) {
+            long bit = 1L << (micro * 9 + cell);
+            if (player == 0) low0 |= bit;
+            else low1 |= bit;
+        }
+        else {
+            long bit = 1L << ((micro - 7) * 9 + cell);
+            if (player == 0) high0 |= bit;
+            else high1 |= bit;
+        }
+    }
+
+    // ORs a 9 bit mask of stones into a micro board
+    private void setMicroMask(int player, int micro, int mask) {
+        if (micro < 7) {
+            long bits = (long) mask << (micro * 9);
+            if (player == 0) low0 |= bits;
+            else low1 |= bits;
+        }
+        else {
+            long bits = (long) mask << ((micro - 7) * 9);
+            if (player == 0) high0 |= bits;
+            else high1 |= bits;
+        }
+    }
+
+    @Override
+    public byte getCell(int column, int row) {
+        int micro = microIndex(column, row);
+        int bit = 1 << cellIndex(column, row);
+        if ((microMask(0, micro) & bit) != 0) return Cell.PLAYER_0;
+        if ((microMask(1, micro) & bit) != 0) return Cell.PLAYER_1;
+        return Cell.EMPTY;
+    }
+
+    @Override
+    public byte getMacroCell(int column, int row) {
+        int bit = 1 << (column * 3 + row);
+        if ((won0 & bit) != 0) return Cell.PLAYER_0;
+        if ((won1 & bit) != 0) return Cell.PLAYER_1;
+        if ((tied & bit) != 0) return Cell.TIE;
+        if ((available & bit) != 0) return Cell.AVAILABLE;
+        return Cell.EMPTY;
+    }
+
+    @Override
+    public List<IMove> getAvailableMoves() {
+        List<IMove> availMoves = new ArrayList<>(Long.bitCount(legalLow) + Long.bitCount(legalHigh));
+        addMoves(availMoves, legalLow, 0);
+        addMoves(availMoves, legalHigh, 64);
+        return availMoves;
+    }
+
+    private static void addMoves(List<IMove> availMoves, long squares, int offset) {
+        while (squares != 0) {
+            int square = offset + Long.numberOfTrailingZeros(squares);
+            squares &= squares - 1;
+            availMoves.add(Move.of(square / 9, square % 9));
+        }
+    }
+
+    @Override
+    public int availableMovesInto(int[] buffer) {
+        int count = 0;
+        for (long squares = legalLow; squares != 0; squares &= squares - 1)
+            buffer[count++] = Long.numberOfTrailingZeros(squares);
+        for (long squares = legalHigh; squares != 0; squares &= squares - 1)
+            buffer[count++] = 64 + Long.numberOfTrailingZeros(squares);
+        return count;
+    }
+
+    @Override
+    public boolean hasAvailableMoves() {
+        return (legalLow | legalHigh) != 0;
+    }
+
+    @Override
+    public int countAvailableMoves() {
+        return Long.bitCount(legalLow) + Long.bitCount(legalHigh);
+    }
+
+    @Override
+    public IMove randomAvailableMove(Random rng) {
+        int count = countAvailableMoves();
+        if (count == 0)
+            return null;
+        return Move.of(availableSquare(rng.nextInt(count)));
+    }
+
+    /**
+     * @param index 0 .. countAvailableMoves()-1
+     * @return the index-th available move as x*9 + y, in the order of getAvailableMoves
+     */
+    public int availableSquare(int index) {
+        int lowCount = Long.bitCount(legalLow);
+        return index < lowCount
+                ? nthSquare(legalLow, index)
+                : 64 + nthSquare(legalHigh, index - lowCount);
+    }
+
+    // Index of the n-th (from 0) set bit of squares
+    private static int nthSquare(long squares, int n) {
+        for (; n > 0; n--)
+            squares &= squares - 1;
+        return Long.numberOfTrailingZeros(squares);
+    }
+
+    @Override
+    public boolean forEachAvailableMove(IntPredicate action) {
+        for (long squares = legalLow; squares != 0; squares &= squares - 1) {
+            if (!action.test(Long.numberOfTrailingZeros(squares)))
+                return false;
+        }
+        for (long squares = legalHigh; squares != 0; squares &= squares - 1) {
+            if (!action.test(64 + Long.numberOfTrailingZeros(squares)))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String getPlayerId(int column, int row) {
+        return Cell.id(getCell(column, row));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return (low0 | high0 | low1 | high1) == 0;
+    }
+
+    @Override
+    public boolean isFull() {
+        for (int micro = 0; micro < 9; micro++) {
+            if (!WinTable.isFull(microMask(0, micro) | microMask(1, micro)))
+                return false;
+        }
+        return true;
+    }
+
+    @Override
+    public Boolean isInActiveMicroboard(int x, int y) {
+        if (x < 0 || 9 <= x || y < 0 || 9 <= y)
+            return false;
+        return (available & (1 << microIndex(x, y))) != 0;
+    }
+
+    /**
+     * @param square x*9 + y
+     * @return true if the square is empty and in an active micro board
+     */
+    public boolean isLegal(int square) {
+        if (square < 0 || 81 <= square)
+            return false;
+        return square < 64
+                ? (legalLow & (1L << square)) != 0
+                : (legalHigh & (1L << (square - 64))) != 0;
+    }
+
+    /**
+     * @param square x*9 + y, an empty square
+     * @return true if a stone of player on the square completes a line in its micro board
+     */
+    public boolean completesLine(int square, int player) {
+        int x = square / 9, y = square % 9;
+        int cell = cellIndex(x, y);
+        return WinTable.isWinThrough(microMask(player, microIndex(x, y)) | 1 << cell, cell);
+    }
+
+    @Override
+    public String[][] getBoard() {
+        refreshViews();
+        return board;
+    }
+
+    @Override
+    public String[][] getMacroboard() {
+        refreshViews();
+        return macroBoard;
+    }
+
+    private void refreshViews() {
+        if (board == null) {
+            board = new String[9][9];
+            macroBoard = new String[3][3];
+            viewDirty = true;
+        }
+        if (!viewDirty)
+            return;
+        for (int i = 0; i < 9; i++)
+            for (int k = 0; k < 9; k++) {
+                board[i][k] = Cell.id(getCell(i, k));
+            }
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                macroBoard[i][k] = Cell.id(getMacroCell(i, k));
+            }
+        viewDirty = false;
+    }
+
+    @Override
+    public void setBoard(String[][] board) {
+        low0 = high0 = low1 = high1 = 0;
+        for (int i = 0; i < 9; i++) {
+            for (int j = 0; j < 9; j++) {
+                byte cell = Cell.of(board[i][j]);
+                if (cell == Cell.PLAYER_0)
+                    setStone(0, microIndex(i, j), cellIndex(i, j));
+                else if (cell == Cell.PLAYER_1)
+                    setStone(1, microIndex(i, j), cellIndex(i, j));
+            }
+        }
+        recountMicroboards();
+        updateLegalMoves();
+        hash = Zobrist.hash(this);
+        viewDirty = true;
+    }
+
+    @Override
+    public void setMacroboard(String[][] macroboard) {
+        won0 = won1 = tied = available = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int j = 0; j < 3; j++) {
+                int bit = 1 << (i * 3 + j);
+                byte cell = Cell.of(macroboard[i][j]);
+                if (cell == Cell.PLAYER_0) won0 |= bit;
+                else if (cell == Cell.PLAYER_1) won1 |= bit;
+                else if (cell == Cell.TIE) tied |= bit;
+                else if (cell == Cell.AVAILABLE) available |= bit;
+            }
+        }
+        recountMicroboards();
+        updateLegalMoves();
+        hash = Zobrist.hash(this);
+        viewDirty = true;
+    }
+}
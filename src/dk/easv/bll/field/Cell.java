@@ -0,0 +1,62 @@
+package dk.easv.bll.field;
+
+/**
+ * Byte codes for board and macroboard cells, and the conversion to and from the
+ * String ids used by IField.getBoard and IField.getMacroboard.
+ *
+ * Comparing codes is a single instruction, and the String ids handed out here are
+ * shared constants, so turning a code into an id never allocates.
+ */
+public final class Cell {
+
+    public static final byte EMPTY = 0;
+    public static final byte PLAYER_0 = 1;
+    public static final byte PLAYER_1 = 2;
+    public static final byte TIE = 3;
+    public static final byte AVAILABLE = 4;
+
+    public static final String TIE_FIELD = "TIE";
+
+    private static final String[] IDS = {IField.EMPTY_FIELD, "0", "1", TIE_FIELD, IField.AVAILABLE_FIELD};
+
+    private Cell() {
+    }
+
+    /**
+     * @param player 0 or 1
+     * @return the cell code of that player's stone
+     */
+    public static byte ofPlayer(int player) {
+        return (byte) (PLAYER_0 + player);
+    }
+
+    /**
+     * @param player 0 or 1
+     * @return the shared String id of the player, "0" or "1"
+     */
+    public static String playerId(int player) {
+        return IDS[PLAYER_0 + player];
+    }
+
+    /**
+     * @param cell a cell code
+     * @return the shared String id for the code
+     */
+    public static String id(byte cell) {
+        return IDS[cell];
+    }
+
+    /**
+     * @param id a String id as found in getBoard or getMacroboard
+     * @return the code for the id, unknown ids are EMPTY
+     */
+    public static byte of(String id) {
+        switch (id) {
+            case "0": return PLAYER_0;
+            case "1": return PLAYER_1;
+            case TIE_FIELD: return TIE;
+            case IField.AVAILABLE_FIELD: return AVAILABLE;
+            default: return EMPTY;
+        }
+    }
+}
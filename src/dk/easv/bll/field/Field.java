@@ -5,6 +5,8 @@ import dk.easv.bll.move.Move;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
 
 public class Field implements IField{
 
@@ -15,6 +17,35 @@ public class Field implements IField{
         clearBoard();
     }
 
+    /**
+     * Creates a Field holding the same position as field, without clearing it first.
+     * Bot simulators use this to get a String based copy they can write into.
+     * @param field Any field, a BitboardField is read through its cell codes
+     */
+    public Field(IField field) {
+        if (field instanceof Field) {
+            Field other = (Field) field;
+            for (int i = 0; i < 9; i++)
+                System.arraycopy(other.board[i], 0, board[i], 0, 9);
+            for (int i = 0; i < 3; i++)
+                System.arraycopy(other.macroBoard[i], 0, macroBoard[i], 0, 3);
+            return;
+        }
+        for (int i = 0; i < 9; i++)
+            for (int k = 0; k < 9; k++) {
+                board[i][k] = Cell.id(field.getCell(i, k));
+            }
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                macroBoard[i][k] = Cell.id(field.getMacroCell(i, k));
+            }
+    }
+
+    @Override
+    public IField copy() {
+        return new Field(this);
+    }
+
     @Override
     public void clearBoard() {
         board = new String[9][9];
@@ -35,23 +66,95 @@ public class Field implements IField{
         for (int i = 0; i < board.length; i++)
             for (int k = 0; k < board[i].length; k++) {
                 if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD)) {
-                    availMoves.add(new Move(i,k));
+                    availMoves.add(Move.of(i,k));
                 }
         }
 
         return availMoves;
     }
 
+    @Override
+    public int availableMovesInto(int[] buffer) {
+        int count = 0;
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD)) {
+                    buffer[count++] = i * 9 + k;
+                }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean hasAvailableMoves() {
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD))
+                    return true;
+        }
+        return false;
+    }
+
+    @Override
+    public int countAvailableMoves() {
+        int count = 0;
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD))
+                    count++;
+        }
+        return count;
+    }
+
+    @Override
+    public IMove randomAvailableMove(Random rng) {
+        int count = countAvailableMoves();
+        if (count == 0)
+            return null;
+        int skip = rng.nextInt(count);
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD) && skip-- == 0)
+                    return Move.of(i,k);
+        }
+        return null;
+    }
+
+    @Override
+    public boolean forEachAvailableMove(IntPredicate action) {
+        for (int i = 0; i < board.length; i++)
+            for (int k = 0; k < board[i].length; k++) {
+                if(isInActiveMicroboard(i,k) && board[i][k].equals(EMPTY_FIELD) && !action.test(i * 9 + k))
+                    return false;
+        }
+        return true;
+    }
+
     @Override
     public String getPlayerId(int column, int row) {
         return board[column][row];
     }
 
+    @Override
+    public byte getCell(int column, int row) {
+        return Cell.of(board[column][row]);
+    }
+
+    @Override
+    public byte getMacroCell(int column, int row) {
+        return Cell.of(macroBoard[column][row]);
+    }
+
+    @Override
+    public long getHash() {
+        return Zobrist.hash(this);
+    }
+
     @Override
     public boolean isEmpty() {
         for (int i = 0; i < board.length; i++)
             for (int k = 0; k < board[i].length; k++) {
-                if(board[i][k]!=EMPTY_FIELD && board[i][k]!=AVAILABLE_FIELD)
+                if(!board[i][k].equals(EMPTY_FIELD) && !board[i][k].equals(AVAILABLE_FIELD))
                     return false;
             }
         return true;
@@ -61,7 +164,7 @@ public class Field implements IField{
     public boolean isFull() {
         for (int i = 0; i < board.length; i++)
             for (int k = 0; k < board[i].length; k++) {
-                if(board[i][k]==EMPTY_FIELD || board[i][k]==AVAILABLE_FIELD)
+                if(board[i][k].equals(EMPTY_FIELD) || board[i][k].equals(AVAILABLE_FIELD))
                     return false;
             }
         return true;
@@ -1,6 +1,8 @@
 package dk.easv.bll.field;
 
 import java.util.List;
+import java.util.Random;
+import java.util.function.IntPredicate;
 import dk.easv.bll.move.IMove;
 
 /**
@@ -17,6 +19,13 @@ public interface IField {
      */
     void clearBoard();
 
+    /**
+     * Creates an independent copy of this field, of the same kind.
+     * Cheaper than a new field followed by setBoard and setMacroboard.
+     * @return the copy
+     */
+    IField copy();
+
     /**
      * Generates a list of available moves, moves are limited to the 3x3 area 
      * indicated by the opponents last move, and limited by occupied spaces.
@@ -24,6 +33,39 @@ public interface IField {
      */
     List<IMove> getAvailableMoves();
 
+    /**
+     * Allocation free version of getAvailableMoves. Writes the available moves
+     * as squares (x*9 + y) into buffer, in the same order as getAvailableMoves.
+     * @param buffer Array with room for at least 81 squares
+     * @return Number of squares written
+     */
+    int availableMovesInto(int[] buffer);
+
+    /**
+     * @return true if at least one move is available, stops at the first one found
+     */
+    boolean hasAvailableMoves();
+
+    /**
+     * @return the number of available moves, without building a list
+     */
+    int countAvailableMoves();
+
+    /**
+     * Picks one of the available moves with equal chance, without building a list.
+     * @param rng source of randomness
+     * @return a random available move, or null if there is none
+     */
+    IMove randomAvailableMove(Random rng);
+
+    /**
+     * Calls action with each available move as a square (x*9 + y), in the same order
+     * as getAvailableMoves, until action returns false.
+     * @param action returns true to go on to the next move, false to stop
+     * @return false if action stopped the iteration, true if it saw every move
+     */
+    boolean forEachAvailableMove(IntPredicate action);
+
     /**
      * Returns the player id on given column and row
      * @param column Column
@@ -32,6 +74,29 @@ public interface IField {
      */
     String getPlayerId(int column, int row);
 
+    /**
+     * Returns the cell on given column and row as a byte code
+     * @param column Column
+     * @param row Row
+     * @return Cell.EMPTY, Cell.PLAYER_0 or Cell.PLAYER_1
+     */
+    byte getCell(int column, int row);
+
+    /**
+     * Returns the macroboard cell on given column and row (0..2) as a byte code
+     * @param column Column
+     * @param row Row
+     * @return Cell.AVAILABLE, Cell.EMPTY, Cell.PLAYER_0, Cell.PLAYER_1 or Cell.TIE
+     */
+    byte getMacroCell(int column, int row);
+
+    /**
+     * Zobrist key of the stones and the available micro boards, see Zobrist.
+     * Equal positions give equal keys, whatever the field implementation.
+     * @return 64 bit position key
+     */
+    long getHash();
+
     boolean isEmpty();
 
     /**
@@ -51,11 +116,17 @@ public interface IField {
     Boolean isInActiveMicroboard(int x, int y);
 
     /**
+     * Whether writing into the returned array changes the field depends on the
+     * implementation. Field returns the array it plays on, so writes change it.
+     * BitboardField, which the GUI plays on and so hands to the bots, returns a
+     * view: writes into it are ignored by the field and lost when the field
+     * changes. Use setBoard and setMacroboard to change a field.
      * @return the Board (the entire 9x9 board)
      */
     String[][] getBoard();
 
     /**
+     * Writing into the returned array may not change the field, see getBoard.
      * @return the Macroboard (the overarching 3x3 board)
      */
     String[][] getMacroboard();
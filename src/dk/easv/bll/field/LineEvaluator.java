@@ -0,0 +1,144 @@
+package dk.easv.bll.field;
+
+/**
+ * Static evaluation of a position from the lines of all 9 micro boards and the macroboard.
+ *
+ * Every 3x3 board has 8 lines, and a line is scored by how many stones each player has
+ * in it. Instead of scoring lines one by one for every position, the score of every
+ * possible micro board is computed once: a micro board is one of 3^9 patterns, its
+ * index is built from the two players' 9 bit masks with two table reads, and one more
+ * read gives the sum over its 8 lines. Evaluating a BitboardField is then a handful of
+ * array reads per micro board and does not allocate.
+ *
+ * Decided micro boards are not scored as boards, they count on the macroboard instead,
+ * where lines through a tied board can not be won by anybody and score nothing.
+ */
+public final class LineEvaluator {
+
+    /**
+     * Score of a won game, larger than any score made up of lines.
+     */
+    public static final int WIN = 1_000_000;
+
+    private static final int PATTERNS = 19683; // 3^9
+
+    // TERNARY[mask] has digit 1 at every cell in the mask, in base 3
+    private static final int[] TERNARY = new int[512];
+
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,
+            0b001_001_001, 0b010_010_010, 0b100_100_100,
+            0b100_010_001, 0b001_010_100};
+
+    static {
+        for (int mask = 0; mask < 512; mask++) {
+            int power = 1;
+            for (int cell = 0; cell < 9; cell++) {
+                if ((mask & (1 << cell)) != 0)
+                    TERNARY[mask] += power;
+                power *= 3;
+            }
+        }
+    }
+
+    /**
+     * Evaluator with weights in the spirit of the bots' evaluateLine: 1 and 10 for one
+     * or two stones in an open line, and the macroboard lines worth 20 times as much.
+     */
+    public static final LineEvaluator DEFAULT = new LineEvaluator(new int[][]{
+            {0, -1, -10, 0},
+            {1, 0, 0, 0},
+            {10, 0, 0, 0},
+            {0, 0, 0, 0}}, 20);
+
+    // Line scores for player 0, [stones of player 0][stones of player 1]
+    private final int[][] lineWeights;
+    private final int macroWeight;
+    // Sum of the 8 line scores for every micro board pattern, for player 0
+    private final int[] boardScores = new int[PATTERNS];
+
+    /**
+     * @param lineWeights the score of a line for a player, indexed [own stones][opponent stones]
+     *                    (0..3 each). Should be antisymmetric, weight[a][b] == -weight[b][a],
+     *                    so both players are scored the same way.
+     * @param macroWeight how many times a line on the macroboard is worth a line in a micro board
+     */
+    public LineEvaluator(int[][] lineWeights, int macroWeight) {
+        this.lineWeights = new int[4][4];
+        for (int own = 0; own < 4; own++)
+            System.arraycopy(lineWeights[own], 0, this.lineWeights[own], 0, 4);
+        this.macroWeight = macroWeight;
+
+        for (int mask0 = 0; mask0 < 512; mask0++)
+            for (int mask1 = 0; mask1 < 512; mask1++) {
+                if ((mask0 & mask1) == 0)
+                    boardScores[index(mask0, mask1)] = scoreLines(mask0, mask1);
+            }
+    }
+
+    private static int index(int mask0, int mask1) {
+        return TERNARY[mask0] + 2 * TERNARY[mask1];
+    }
+
+    private int scoreLines(int mask0, int mask1) {
+        int score = 0;
+        for (int line : LINES) {
+            score += lineWeights[Integer.bitCount(mask0 & line)][Integer.bitCount(mask1 & line)];
+        }
+        return score;
+    }
+
+    /**
+     * @param mask0 9 bit mask of player 0's stones in a micro board
+     * @param mask1 9 bit mask of player 1's stones, not overlapping mask0
+     * @return the summed line scores of the micro board, for player 0
+     */
+    public int scoreBoard(int mask0, int mask1) {
+        return boardScores[index(mask0, mask1)];
+    }
+
+    /**
+     * @param player 0 or 1
+     * @return the score of the position for player, positive is good.
+     * WIN or -WIN when the game is won.
+     */
+    public int evaluate(BitboardField field, int player) {
+        int score;
+        int winner = field.getWinner();
+        if (winner >= 0) {
+            score = winner == 0 ? WIN : -WIN;
+        }
+        else {
+            score = 0;
+            int open = ~field.decided & BitboardField.MICRO_FULL;
+            for (int micro = 0; micro < 9; micro++) {
+                if ((open & (1 << micro)) != 0)
+                    score += boardScores[index(field.microMask(0, micro), field.microMask(1, micro))];
+            }
+            score += macroWeight * scoreMacroboard(field.won0, field.won1, field.tied);
+        }
+        return player == 0 ? score : -score;
+    }
+
+    /**
+     * Evaluates any field. A field that is not a BitboardField is converted first,
+     * which allocates, so searches should evaluate a BitboardField directly.
+     * @param player 0 or 1
+     */
+    public int evaluate(IField field, int player) {
+        if (field instanceof BitboardField)
+            return evaluate((BitboardField) field, player);
+        return evaluate(BitboardField.of(field), player);
+    }
+
+    private int scoreMacroboard(int won0, int won1, int tied) {
+        if (tied == 0)
+            return boardScores[index(won0, won1)];
+        int score = 0;
+        for (int line : LINES) {
+            if ((tied & line) == 0)
+                score += lineWeights[Integer.bitCount(won0 & line)][Integer.bitCount(won1 & line)];
+        }
+        return score;
+    }
+}
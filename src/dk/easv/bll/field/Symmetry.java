@@ -0,0 +1,221 @@
+package dk.easv.bll.field;
+
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+/**
+ * The 8 symmetries of the board (rotations and mirrors) and canonical keys
+ * built from them.
+ *
+ * A symmetry maps the 9x9 board onto itself in a way that maps every micro
+ * board onto a micro board and keeps the rules intact: the cell a move is
+ * played in and the micro board it sends the opponent to are transformed the
+ * same way. Positions that are the same up to a symmetry therefore have the
+ * same value, and a search or cache can treat them as one by using
+ * canonicalHash as key and mapping moves with apply.
+ *
+ * Symmetries are numbered 0-7, 0 is the identity. For board coordinates n is 8,
+ * for the 3x3 macroboard and cells inside a micro board n is 2:
+ * 0 (x,y), 1 (y,n-x), 2 (n-x,n-y), 3 (n-y,x), 4 (n-x,y), 5 (x,n-y), 6 (y,x), 7 (n-y,n-x).
+ */
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+    public static final int IDENTITY = 0;
+
+    private static final int[] INVERSE = {0, 3, 2, 1, 4, 5, 6, 7};
+
+    // SQUARES[symmetry][x*9 + y]
+    private static final byte[][] SQUARES = new byte[COUNT][81];
+    // CELLS[symmetry][localX*3 + localY], also used for the macroboard
+    private static final byte[][] CELLS = new byte[COUNT][9];
+    // MASKS[symmetry][mask] for 9 bit masks over CELLS
+    private static final short[][] MASKS = new short[COUNT][512];
+
+    static {
+        for (int symmetry = 0; symmetry < COUNT; symmetry++) {
+            for (int x = 0; x < 9; x++)
+                for (int y = 0; y < 9; y++) {
+                    SQUARES[symmetry][x * 9 + y] = (byte) map(symmetry, x, y, 8);
+                }
+            for (int x = 0; x < 3; x++)
+                for (int y = 0; y < 3; y++) {
+                    int to = map(symmetry, x, y, 2);
+                    CELLS[symmetry][x * 3 + y] = (byte) ((to / 9) * 3 + to % 9);
+                }
+            for (int mask = 0; mask < 512; mask++)
+                for (int cell = 0; cell < 9; cell++) {
+                    if ((mask & (1 << cell)) != 0)
+                        MASKS[symmetry][mask] |= 1 << CELLS[symmetry][cell];
+                }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    // Returns the transformed point as x*9 + y
+    private static int map(int symmetry, int x, int y, int n) {
+        switch (symmetry) {
+            case 0: return x * 9 + y;
+            case 1: return y * 9 + (n - x);
+            case 2: return (n - x) * 9 + (n - y);
+            case 3: return (n - y) * 9 + x;
+            case 4: return (n - x) * 9 + y;
+            case 5: return x * 9 + (n - y);
+            case 6: return y * 9 + x;
+            case 7: return (n - y) * 9 + (n - x);
+            default: throw new IllegalArgumentException("No symmetry " + symmetry);
+        }
+    }
+
+    /**
+     * @return the symmetry that undoes symmetry
+     */
+    public static int inverse(int symmetry) {
+        return INVERSE[symmetry];
+    }
+
+    /**
+     * @param square x*9 + y
+     * @return the square it is moved to by symmetry
+     */
+    public static int apply(int symmetry, int square) {
+        return SQUARES[symmetry][square];
+    }
+
+    /**
+     * @return the move transformed by symmetry
+     */
+    public static IMove apply(int symmetry, IMove move) {
+        return Move.of(apply(symmetry, move.getX() * 9 + move.getY()));
+    }
+
+    /**
+     * @param cell localX*3 + localY, or macroX*3 + macroY
+     * @return the cell it is moved to by symmetry
+     */
+    public static int applyToCell(int symmetry, int cell) {
+        return CELLS[symmetry][cell];
+    }
+
+    /**
+     * @param mask 9 bit mask over cells or micro boards
+     * @return the mask transformed by symmetry
+     */
+    public static int applyToMask(int symmetry, int mask) {
+        return MASKS[symmetry][mask];
+    }
+
+    /**
+     * @return the Zobrist key the field would have after transforming it with symmetry
+     */
+    public static long hash(IField field, int symmetry) {
+        long[] stones = stones(field);
+        return hash(stones, availableMask(field), symmetry);
+    }
+
+    /**
+     * @return the symmetry that takes field to its canonical orientation, the one
+     * with the lowest key. Positions that are symmetric to each other get the same
+     * canonical orientation.
+     */
+    public static int canonicalSymmetry(IField field) {
+        long[] stones = stones(field);
+        int available = availableMask(field);
+        int best = IDENTITY;
+        long bestHash = hash(stones, available, IDENTITY);
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            long hash = hash(stones, available, symmetry);
+            if (hash < bestHash) {
+                bestHash = hash;
+                best = symmetry;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * @return a key that is the same for all positions that are symmetric to field,
+     * the Zobrist key of its canonical orientation. XOR Zobrist.PLAYER_1_TO_MOVE
+     * when player 1 is to move, as IGameState.getHash does.
+     */
+    public static long canonicalHash(IField field) {
+        long[] stones = stones(field);
+        int available = availableMask(field);
+        long bestHash = hash(stones, available, IDENTITY);
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            bestHash = Math.min(bestHash, hash(stones, available, symmetry));
+        }
+        return bestHash;
+    }
+
+    /**
+     * Writes one available move per group of moves that lead to symmetric positions,
+     * so a search only has to look at moves that are really different. On the empty
+     * board that is 15 of the 81 moves.
+     * @param buffer room for at least 81 squares
+     * @return the number of moves written, as x*9 + y
+     */
+    public static int distinctMovesInto(IField field, int[] buffer) {
+        long[] stones = stones(field);
+        int available = availableMask(field);
+        long hash = hash(stones, available, IDENTITY);
+        // Symmetries that leave the position as it is
+        int stabilizer = 0;
+        for (int symmetry = 1; symmetry < COUNT; symmetry++) {
+            if (hash(stones, available, symmetry) == hash)
+                stabilizer |= 1 << symmetry;
+        }
+
+        int count = field.availableMovesInto(buffer);
+        if (stabilizer == 0)
+            return count;
+        int distinct = 0;
+        for (int i = 0; i < count; i++) {
+            int square = buffer[i];
+            boolean lowest = true;
+            for (int symmetries = stabilizer; symmetries != 0 && lowest; symmetries &= symmetries - 1) {
+                lowest = SQUARES[Integer.numberOfTrailingZeros(symmetries)][square] >= square;
+            }
+            if (lowest)
+                buffer[distinct++] = square;
+        }
+        return distinct;
+    }
+
+    // Stones in square order: {player 0 squares 0-63, player 0 squares 64-80, player 1 ..., player 1 ...}
+    private static long[] stones(IField field) {
+        long[] stones = new long[4];
+        for (int square = 0; square < 81; square++) {
+            byte cell = field.getCell(square / 9, square % 9);
+            if (cell == Cell.PLAYER_0 || cell == Cell.PLAYER_1) {
+                int word = (cell - Cell.PLAYER_0) * 2 + (square >= 64 ? 1 : 0);
+                stones[word] |= 1L << (square & 63);
+            }
+        }
+        return stones;
+    }
+
+    private static int availableMask(IField field) {
+        int available = 0;
+        for (int micro = 0; micro < 9; micro++) {
+            if (field.getMacroCell(micro / 3, micro % 3) == Cell.AVAILABLE)
+                available |= 1 << micro;
+        }
+        return available;
+    }
+
+    private static long hash(long[] stones, int available, int symmetry) {
+        byte[] squares = SQUARES[symmetry];
+        long hash = Zobrist.available(MASKS[symmetry][available]);
+        for (int word = 0; word < 4; word++) {
+            int player = word / 2;
+            int offset = (word & 1) * 64;
+            for (long bits = stones[word]; bits != 0; bits &= bits - 1) {
+                hash ^= Zobrist.stone(player, squares[offset + Long.numberOfTrailingZeros(bits)]);
+            }
+        }
+        return hash;
+    }
+}
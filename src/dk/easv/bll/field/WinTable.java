@@ -0,0 +1,69 @@
+package dk.easv.bll.field;
+
+/**
+ * Precomputed win lookups for a 3x3 board, used for both micro boards and the macroboard.
+ *
+ * A board is given as a 9 bit mask of one player's cells, where cell (localX, localY)
+ * is bit localX*3 + localY. The table holds, for each of the 512 masks, which of the
+ * 8 lines are complete, so checking for a win is a single array read.
+ */
+public final class WinTable {
+
+    /**
+     * Mask with all 9 cells set, a board is full when both players' masks OR to this.
+     */
+    public static final int FULL = 0x1FF;
+
+    private static final int[] LINES = {
+            0b000_000_111, 0b000_111_000, 0b111_000_000,   // same localX
+            0b001_001_001, 0b010_010_010, 0b100_100_100,   // same localY
+            0b100_010_001, 0b001_010_100};                 // diagonals
+
+    // Bit i set when LINES[i] is complete in the mask
+    private static final byte[] COMPLETE_LINES = new byte[512];
+    // Bit i set when LINES[i] passes through the cell
+    private static final byte[] LINES_THROUGH_CELL = new byte[9];
+
+    static {
+        for (int mask = 0; mask < 512; mask++) {
+            for (int i = 0; i < LINES.length; i++) {
+                if ((mask & LINES[i]) == LINES[i])
+                    COMPLETE_LINES[mask] |= 1 << i;
+            }
+        }
+        for (int cell = 0; cell < 9; cell++) {
+            for (int i = 0; i < LINES.length; i++) {
+                if ((LINES[i] & (1 << cell)) != 0)
+                    LINES_THROUGH_CELL[cell] |= 1 << i;
+            }
+        }
+    }
+
+    private WinTable() {
+    }
+
+    /**
+     * @param mask 9 bit mask of one player's cells
+     * @return true if the mask contains three in a row
+     */
+    public static boolean isWin(int mask) {
+        return COMPLETE_LINES[mask] != 0;
+    }
+
+    /**
+     * @param mask 9 bit mask of one player's cells, including cell
+     * @param cell the cell that was just played (0..8)
+     * @return true if a complete line passes through cell
+     */
+    public static boolean isWinThrough(int mask, int cell) {
+        return (COMPLETE_LINES[mask] & LINES_THROUGH_CELL[cell]) != 0;
+    }
+
+    /**
+     * @param occupied 9 bit mask of cells taken by either player
+     * @return true if no cell is left
+     */
+    public static boolean isFull(int occupied) {
+        return occupied == FULL;
+    }
+}
@@ -0,0 +1,78 @@
+package dk.easv.bll.field;
+
+import java.util.SplittableRandom;
+
+/**
+ * Zobrist keys for Ultimate Tic-Tac-Toe positions.
+ *
+ * A position key is the XOR of one random key per stone (player, square), the key
+ * of the set of available micro boards and, for IGameState, a key for player 1 to
+ * move. Keys come from a fixed seed so hashes are the same from run to run.
+ */
+public final class Zobrist {
+
+    // STONES[player][x*9 + y]
+    private static final long[][] STONES = new long[2][81];
+    // AVAILABLE[mask] for a 9 bit mask of available micro boards
+    private static final long[] AVAILABLE = new long[512];
+    /**
+     * XORed into a position key when player 1 is to move.
+     */
+    public static final long PLAYER_1_TO_MOVE;
+
+    static {
+        SplittableRandom random = new SplittableRandom(0x5EED_0F_0771L);
+        for (int player = 0; player < 2; player++)
+            for (int square = 0; square < 81; square++) {
+                STONES[player][square] = random.nextLong();
+            }
+        long[] microKeys = new long[9];
+        for (int micro = 0; micro < 9; micro++)
+            microKeys[micro] = random.nextLong();
+        for (int mask = 0; mask < 512; mask++)
+            for (int micro = 0; micro < 9; micro++) {
+                if ((mask & (1 << micro)) != 0)
+                    AVAILABLE[mask] ^= microKeys[micro];
+            }
+        PLAYER_1_TO_MOVE = random.nextLong();
+    }
+
+    private Zobrist() {
+    }
+
+    /**
+     * @param player 0 or 1
+     * @param square x*9 + y
+     */
+    public static long stone(int player, int square) {
+        return STONES[player][square];
+    }
+
+    /**
+     * @param mask 9 bit mask of available micro boards, bit macroX*3 + macroY
+     */
+    public static long available(int mask) {
+        return AVAILABLE[mask];
+    }
+
+    /**
+     * Computes the position key of any field from scratch.
+     * @return the same key a BitboardField keeps up to date as moves are played
+     */
+    public static long hash(IField field) {
+        long hash = 0;
+        for (int x = 0; x < 9; x++)
+            for (int y = 0; y < 9; y++) {
+                byte cell = field.getCell(x, y);
+                if (cell == Cell.PLAYER_0) hash ^= STONES[0][x * 9 + y];
+                else if (cell == Cell.PLAYER_1) hash ^= STONES[1][x * 9 + y];
+            }
+        int available = 0;
+        for (int x = 0; x < 3; x++)
+            for (int y = 0; y < 3; y++) {
+                if (field.getMacroCell(x, y) == Cell.AVAILABLE)
+                    available |= 1 << (x * 3 + y);
+            }
+        return hash ^ AVAILABLE[available];
+    }
+}
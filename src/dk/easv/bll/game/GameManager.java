@@ -1,9 +1,12 @@
 package dk.easv.bll.game;
 
 import dk.easv.bll.bot.IBot;
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.Cell;
 import dk.easv.bll.field.IField;
+import dk.easv.bll.field.WinTable;
 import dk.easv.bll.move.IMove;
-import dk.easv.bll.move.Move;
+import dk.easv.bll.move.SquareMove;
 
 /**
  * This is a proposed GameManager for Ultimate Tic-Tac-Toe,
@@ -39,6 +42,11 @@ public class GameManager {
     private IBot bot2 = null;
     private volatile GameOverState gameOver = GameOverState.Active;
 
+    private static final GameOverState[] GAME_OVER_STATES = GameOverState.values();
+    // One record per made move, see makeMove for the layout
+    private long[] undoStack;
+    private int undoCount = 0;
+
     public void setGameOver(GameOverState state) {
         gameOver = state;
     }
@@ -114,6 +122,92 @@ public class GameManager {
         return true;
     }
     
+    /**
+     * Allocation free version of updateGame(IMove) for bots and simulations.
+     * @param square The next move as x*9 + y
+     * @return Returns true if the update was successful, false otherwise.
+     */
+    public boolean play(int square)
+    {
+        if(square < 0 || 81 <= square)
+            return false;
+        return updateGame(SquareMove.of(square));
+    }
+
+    /**
+     * Plays a move so it can be taken back again with unmakeMove. Meant for searches
+     * that walk the game tree on one state instead of copying it for every node.
+     *
+     * The undo record is a single long: the square in bits 0-6, the game over state
+     * in bits 7-8 and the macroboard from before the move in the bits above that
+     * (the available micro boards for a BitboardField, 9 packed cell codes otherwise).
+     * @param square The next move as x*9 + y
+     * @return Returns true if the move was made, false if it was illegal.
+     */
+    public boolean makeMove(int square)
+    {
+        if(square < 0 || 81 <= square || !verifyMoveLegality(SquareMove.of(square)))
+            return false;
+
+        IField field = currentState.getField();
+        long macroboard = field instanceof BitboardField
+                ? ((BitboardField) field).getAvailableMicroboards()
+                : packMacroboard(field);
+        if(undoStack == null)
+            undoStack = new long[81];
+        undoStack[undoCount++] = square | (long) gameOver.ordinal() << 7 | macroboard << 9;
+
+        updateBoard(SquareMove.of(square));
+        currentPlayer = (currentPlayer + 1) % 2;
+        return true;
+    }
+
+    /**
+     * Takes back the last move made with makeMove, restoring the board, macroboard,
+     * game over state, current player and move/round numbers.
+     */
+    public void unmakeMove()
+    {
+        assert(undoCount > 0);
+        long record = undoStack[--undoCount];
+        int square = (int) (record & 0x7F);
+        int x = square / 9;
+        int y = square % 9;
+
+        IField field = currentState.getField();
+        if(field instanceof BitboardField) {
+            ((BitboardField) field).undo(x, y, (int) (record >>> 9));
+        }
+        else {
+            field.getBoard()[x][y] = IField.EMPTY_FIELD;
+            unpackMacroboard(field, record >>> 9);
+        }
+
+        gameOver = GAME_OVER_STATES[(int) (record >>> 7) & 3];
+        currentPlayer = (currentPlayer + 1) % 2;
+        if(currentState.getMoveNumber() % 2 == 0) { currentState.setRoundNumber(currentState.getRoundNumber() - 1); }
+        currentState.setMoveNumber(currentState.getMoveNumber() - 1);
+    }
+
+    private static long packMacroboard(IField field)
+    {
+        long packed = 0;
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                packed |= (long) field.getMacroCell(i, k) << ((i * 3 + k) * 3);
+            }
+        return packed;
+    }
+
+    private static void unpackMacroboard(IField field, long packed)
+    {
+        String[][] macroBoard = field.getMacroboard();
+        for (int i = 0; i < 3; i++)
+            for (int k = 0; k < 3; k++) {
+                macroBoard[i][k] = Cell.id((byte) ((packed >>> ((i * 3 + k) * 3)) & 7));
+            }
+    }
+
     /**
      * Non-User driven input, e.g. an update for playing a bot move.
      * @return Returns true if the update was successful, false otherwise.
@@ -162,7 +256,7 @@ public class GameManager {
         if(isValid && (move.getX() < 0 || 9 <= move.getX())) isValid = false;
         if(isValid && (move.getY() < 0 || 9 <= move.getY())) isValid = false;
 
-        if(isValid && !field.getBoard()[move.getX()][move.getY()].equals(IField.EMPTY_FIELD))
+        if(isValid && !field.getPlayerId(move.getX(), move.getY()).equals(IField.EMPTY_FIELD))
             isValid=false;
 
         return isValid;
@@ -170,8 +264,13 @@ public class GameManager {
     
     private void updateBoard(IMove move)
     {
-        String[][] board = currentState.getField().getBoard();
-        board[move.getX()][move.getY()]=currentPlayer+"";
+        IField field = currentState.getField();
+        if(field instanceof BitboardField) {
+            updateBitboard((BitboardField) field, move);
+            return;
+        }
+        String[][] board = field.getBoard();
+        board[move.getX()][move.getY()]=Cell.playerId(currentPlayer);
         currentState.setMoveNumber(currentState.getMoveNumber() + 1);
         if(currentState.getMoveNumber() % 2 == 0) { currentState.setRoundNumber(currentState.getRoundNumber() + 1); }
         checkAndUpdateIfWin(move);
@@ -179,6 +278,22 @@ public class GameManager {
 
     }
 
+    /**
+     * Same rules as the String based path, but the field resolves the micro board,
+     * the macroboard and the next active micro board with bitwise operations.
+     */
+    private void updateBitboard(BitboardField field, IMove move)
+    {
+        field.play(move.getX(), move.getY(), currentPlayer);
+        currentState.setMoveNumber(currentState.getMoveNumber() + 1);
+        if(currentState.getMoveNumber() % 2 == 0) { currentState.setRoundNumber(currentState.getRoundNumber() + 1); }
+
+        if(field.getWinner() >= 0)
+            gameOver = GameOverState.Win;
+        else if(field.isTie())
+            gameOver = GameOverState.Tie;
+    }
+
     private void checkAndUpdateIfWin(IMove move) {
         String[][] macroBoard = currentState.getField().getMacroboard();
         int macroX = move.getX()/3;
@@ -189,101 +304,80 @@ public class GameManager {
 
             String[][] board = getCurrentState().getField().getBoard();
 
-            if(isWin(board,move, ""+currentPlayer))
-                macroBoard[macroX][macroY] = currentPlayer + "";
+            if(isWin(board,move, Cell.playerId(currentPlayer)))
+                macroBoard[macroX][macroY] = Cell.playerId(currentPlayer);
             else if(isTie(board,move))
-                macroBoard[macroX][macroY] = "TIE";
-            
+                macroBoard[macroX][macroY] = Cell.TIE_FIELD;
+            else
+                return; // The macroboard only changes when a micro board is decided
+
             //Check macro win
-            if(isWin(macroBoard,new Move(macroX,macroY), ""+currentPlayer))
+            if(isWin(macroBoard,SquareMove.of(macroX,macroY), Cell.playerId(currentPlayer)))
                 gameOver = GameOverState.Win;
-            else if(isTie(macroBoard,new Move(macroX,macroY)))
+            else if(isTie(macroBoard,SquareMove.of(macroX,macroY)))
                 gameOver = GameOverState.Tie;
         }
 
     }
 
     private boolean isTie(String[][] board, IMove move){
-        int localX = move.getX() % 3;
-        int localY = move.getY() % 3;
-        int startX = move.getX() - (localX);
-        int startY = move.getY() - (localY);
-
-        for (int i = startX; i < startX+3; i++) {
-            for (int k = startY; k < startY+3; k++) {
-                if(board[i][k].equals(IField.AVAILABLE_FIELD) ||
-                        board[i][k].equals(IField.EMPTY_FIELD) )
-                    return false;
+        int startX = move.getX() - (move.getX() % 3);
+        int startY = move.getY() - (move.getY() % 3);
+
+        int occupied = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int k = 0; k < 3; k++) {
+                String cell = board[startX + i][startY + k];
+                if(!cell.equals(IField.AVAILABLE_FIELD) && !cell.equals(IField.EMPTY_FIELD))
+                    occupied |= 1 << (i * 3 + k);
             }
         }
-        return true;
+        return WinTable.isFull(occupied);
     }
 
 
+    /**
+     * Checks whether currentPlayer has three in a row through move, in the 3x3 board holding move.
+     * Works for the 9x9 board as well as the macroboard.
+     */
     public static boolean isWin(String[][] board, IMove move, String currentPlayer){
         int localX = move.getX() % 3;
         int localY = move.getY() % 3;
         int startX = move.getX() - (localX);
         int startY = move.getY() - (localY);
 
-        //check col
-        for (int i = startY; i < startY + 3; i++) {
-            if (!board[move.getX()][i].equals(currentPlayer))
-                break;
-            if (i == startY + 3 - 1) return true;
-        }
-
-        //check row
-        for (int i = startX; i < startX + 3; i++) {
-            if (!board[i][move.getY()].equals(currentPlayer))
-                break;
-            if (i == startX + 3 - 1) return true;
-        }
-
-        //check diagonal
-        if (localX == localY) {
-            //we're on a diagonal
-            int y = startY;
-            for (int i = startX; i < startX + 3; i++) {
-                if (!board[i][y++].equals(currentPlayer))
-                    break;
-                if (i == startX + 3 - 1) return true;
-            }
-        }
-
-        //check anti diagonal
-        if (localX + localY == 3 - 1) {
-            int less = 0;
-            for (int i = startX; i < startX + 3; i++) {
-                if (!board[i][(startY + 2)-less++].equals(currentPlayer))
-                    break;
-                if (i == startX + 3 - 1) return true;
+        int mask = 0;
+        for (int i = 0; i < 3; i++) {
+            for (int k = 0; k < 3; k++) {
+                if (board[startX + i][startY + k].equals(currentPlayer))
+                    mask |= 1 << (i * 3 + k);
             }
         }
-        return false;
+        return WinTable.isWinThrough(mask, localX * 3 + localY);
     }
     
+    /**
+     * Selects the micro board(s) the next player must play in, in one pass over the macroboard:
+     * the board matching the cell just played if it is still open, otherwise every open board.
+     */
     private void updateMacroboard(IMove move)
     {
         String[][] macroBoard = currentState.getField().getMacroboard();
+        int xTrans = move.getX()%3;
+        int yTrans = move.getY()%3;
+        boolean targetOpen = isOpen(macroBoard[xTrans][yTrans]);
+
         for (int i = 0; i < macroBoard.length; i++)
             for (int k = 0; k < macroBoard[i].length; k++) {
-                if(macroBoard[i][k].equals(IField.AVAILABLE_FIELD))
-                    macroBoard[i][k] = IField.EMPTY_FIELD;
+                if(isOpen(macroBoard[i][k]))
+                    macroBoard[i][k] = !targetOpen || (i == xTrans && k == yTrans)
+                            ? IField.AVAILABLE_FIELD
+                            : IField.EMPTY_FIELD;
             }
+    }
 
-        int xTrans = move.getX()%3;
-        int yTrans = move.getY()%3;
-
-        if(macroBoard[xTrans][yTrans].equals(IField.EMPTY_FIELD))
-            macroBoard[xTrans][yTrans] = IField.AVAILABLE_FIELD;
-        else {
-            // Field is already won, set all fields not won to avail.
-            for (int i = 0; i < macroBoard.length; i++)
-                for (int k = 0; k < macroBoard[i].length; k++) {
-                    if(macroBoard[i][k].equals(IField.EMPTY_FIELD))
-                        macroBoard[i][k] = IField.AVAILABLE_FIELD;
-                }
-        }
+    private static boolean isOpen(String macroCell)
+    {
+        return macroCell.equals(IField.EMPTY_FIELD) || macroCell.equals(IField.AVAILABLE_FIELD);
     }
 }
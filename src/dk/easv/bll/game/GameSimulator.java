@@ -0,0 +1,132 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.List;
+
+/**
+ * Simulator for bots that need to play games out or search the game tree.
+ *
+ * It takes a snapshot of the state handed to the bot, so the bot can play on
+ * it freely, and runs the same rules as the GameManager on a BitboardField.
+ * Moves are made with makeMove-style undo records, so a search can walk the
+ * tree on one simulator with play/undo, and playing or undoing a move never
+ * allocates.
+ *
+ * Bots used to carry their own copy of this code. Using this class instead
+ * means they follow any change to the rules, and the bot file can still be
+ * dropped into the bot folder on its own.
+ */
+public class GameSimulator {
+    private final GameState currentState;
+    private final GameManager game;
+    private final BitboardField field;
+
+    /**
+     * @param state the state to start from, it is copied and never changed
+     */
+    public GameSimulator(IGameState state) {
+        field = BitboardField.of(state.getField());
+        currentState = new GameState(field);
+        currentState.setMoveNumber(state.getMoveNumber());
+        currentState.setRoundNumber(state.getRoundNumber());
+        currentState.setTimePerMove(state.getTimePerMove());
+
+        game = new GameManager(currentState);
+        game.setCurrentPlayer(state.getMoveNumber() % 2);
+        if (field.getWinner() >= 0)
+            game.setGameOver(GameManager.GameOverState.Win);
+        else if (field.isTie())
+            game.setGameOver(GameManager.GameOverState.Tie);
+    }
+
+    /**
+     * @return the simulated state, changes as moves are played
+     */
+    public IGameState getCurrentState() {
+        return currentState;
+    }
+
+    /**
+     * @return the player to move, 0 or 1
+     */
+    public int getCurrentPlayer() {
+        return game.getCurrentPlayer();
+    }
+
+    public GameManager.GameOverState getGameOver() {
+        return game.getGameOver();
+    }
+
+    /**
+     * @return the key of the simulated position, see IGameState.getHash
+     */
+    public long getHash() {
+        return currentState.getHash();
+    }
+
+    /**
+     * @return the player (0 or 1) that won the game, or -1
+     */
+    public int getWinner() {
+        return field.getWinner();
+    }
+
+    /**
+     * Plays a move for the current player.
+     * @param square the move as x*9 + y
+     * @return false if the move is illegal, the state is then unchanged
+     */
+    public boolean play(int square) {
+        return game.makeMove(square);
+    }
+
+    /**
+     * Plays a move for the current player.
+     * @return false if the move is illegal, the state is then unchanged
+     */
+    public boolean play(IMove move) {
+        if (move.getX() < 0 || 9 <= move.getX() || move.getY() < 0 || 9 <= move.getY())
+            return false;
+        return game.makeMove(move.getX() * 9 + move.getY());
+    }
+
+    /**
+     * Takes back the last move that was played.
+     */
+    public void undo() {
+        game.unmakeMove();
+    }
+
+    /**
+     * @param buffer room for at least 81 squares
+     * @return the number of available moves written to buffer, as x*9 + y
+     */
+    public int availableMovesInto(int[] buffer) {
+        return field.availableMovesInto(buffer);
+    }
+
+    /**
+     * @param square x*9 + y, an empty square
+     * @return true if player taking the square wins its micro board
+     */
+    public boolean completesLine(int square, int player) {
+        return field.completesLine(square, player);
+    }
+
+    /**
+     * @return a new list of the available moves
+     */
+    public List<IMove> getAvailableMoves() {
+        return field.getAvailableMoves();
+    }
+
+    /**
+     * @return the move for a square, as used by bots that return an IMove
+     */
+    public static IMove toMove(int square) {
+        return Move.of(square);
+    }
+}
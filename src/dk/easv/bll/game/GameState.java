@@ -2,6 +2,7 @@ package dk.easv.bll.game;
 
 import dk.easv.bll.field.Field;
 import dk.easv.bll.field.IField;
+import dk.easv.bll.field.Zobrist;
 
 public class GameState implements IGameState{
     IField field;
@@ -15,13 +16,26 @@ public class GameState implements IGameState{
         roundNumber=0;
     }
 
+    /**
+     * Starts an empty game on the given field implementation.
+     * @param field usually a cleared BitboardField or Field
+     */
+    public GameState(IField field){
+        this.field = field;
+        moveNumber=0;
+        roundNumber=0;
+    }
+
+    /**
+     * Snapshot of state, e.g. for handing to a bot. The field is copied with
+     * IField.copy, so a BitboardField copy is just a few primitive words.
+     */
     public GameState(IGameState state) {
-        field = new Field();
-        field.setMacroboard(state.getField().getMacroboard());
-        field.setBoard(state.getField().getBoard());
+        field = state.getField().copy();
 
         moveNumber = state.getMoveNumber();
         roundNumber = state.getRoundNumber();
+        timePerMove = state.getTimePerMove();
     }
 
     @Override
@@ -49,6 +63,12 @@ public class GameState implements IGameState{
         this.roundNumber = roundNumber;
     }
 
+    @Override
+    public long getHash() {
+        long hash = field.getHash();
+        return moveNumber % 2 == 0 ? hash : hash ^ Zobrist.PLAYER_1_TO_MOVE;
+    }
+
     @Override
     public int getTimePerMove()
     {
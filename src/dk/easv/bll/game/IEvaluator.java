@@ -0,0 +1,26 @@
+package dk.easv.bll.game;
+
+/**
+ * Static evaluation of a position, for searches such as PrincipalVariationSearch.
+ *
+ * It gets the same things FinalBoss' evaluate works from: the simulated position
+ * and its available moves, so an evaluation that looks at the micro board to play
+ * in can take it from the first move. dk.easv.bll.field.LineEvaluator scores the
+ * whole board instead:
+ * <pre>
+ * (simulator, moves, count, player) -&gt; LineEvaluator.DEFAULT.evaluate(simulator.getCurrentState().getField(), player)
+ * </pre>
+ */
+@FunctionalInterface
+public interface IEvaluator {
+
+    /**
+     * Scores a position that is not game over. It must not change the simulator.
+     * @param moves the available moves as x*9 + y, in scan order
+     * @param count the number of moves, at least 1
+     * @param player 0 or 1
+     * @return the score of the position for player, higher is better. The search
+     * negates it for the other player, so it should stay well inside +-PrincipalVariationSearch.WIN.
+     */
+    int evaluate(GameSimulator simulator, int[] moves, int count, int player);
+}
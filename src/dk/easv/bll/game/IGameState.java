@@ -18,4 +18,11 @@ public interface IGameState {
 
     int getTimePerMove();
     void setTimePerMove(int milliSeconds);
+
+    /**
+     * 64 bit Zobrist key of the position: the field's key plus whose turn it is.
+     * Cheap on a BitboardField, where the game manager keeps it up to date move by move.
+     * @return key for caches and transposition tables
+     */
+    long getHash();
 }
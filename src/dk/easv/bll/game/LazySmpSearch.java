@@ -0,0 +1,116 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.move.IMove;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lazy SMP: parallel alpha-beta where every thread runs the same iterative
+ * deepening PrincipalVariationSearch on the same position, and the threads only
+ * share the TranspositionTable.
+ *
+ * The calling thread runs the main search, and its move is the one returned. The
+ * helper threads search alongside it, starting one or more plies deeper so they
+ * are ahead of it and on different nodes. Whatever they store, the main search
+ * finds in the table and does not have to search itself, so it gets deeper in the
+ * same time. The table needs no locks, see TranspositionTable. When the main search
+ * is done the helpers are stopped, their unfinished iterations are dropped.
+ *
+ * The helper threads come from one pool of daemon threads, one per core, shared by
+ * all Lazy SMP searches. The table is kept for the life of the search object, so a
+ * bot should make one and use it for every move. See
+ * dk.easv.bll.benchmark.SearchBenchmark for how it scales with the threads.
+ */
+public class LazySmpSearch {
+
+    // Shared by all instances, see the class comment
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "LazySmpSearch");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final int threads;
+    private final PrincipalVariationSearch main;
+    private final PrincipalVariationSearch[] helpers;
+    private final AtomicBoolean stop = new AtomicBoolean();
+    private long nodes;
+
+    /**
+     * @param evaluator scores the positions at the end of the search, used by all threads at once
+     * @param threads the number of threads searching, the calling thread included, e.g.
+     *                Runtime.getRuntime().availableProcessors()
+     */
+    public LazySmpSearch(IEvaluator evaluator, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        this.threads = threads;
+        TranspositionTable table = new TranspositionTable(20);
+        main = new PrincipalVariationSearch(evaluator, table);
+        helpers = new PrincipalVariationSearch[threads - 1];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new PrincipalVariationSearch(evaluator, table);
+            helpers[i].setStop(stop);
+        }
+    }
+
+    /**
+     * Searches state on all threads until System.nanoTime() reaches deadline.
+     * @return the main search's move, or null when the game is over
+     */
+    public IMove search(IGameState state, long deadline) {
+        stop.set(false);
+        List<Future<?>> results = new ArrayList<>(helpers.length);
+        for (int i = 0; i < helpers.length; i++) {
+            PrincipalVariationSearch helper = helpers[i];
+            // Helper 1 and 2 start 1 ply deeper than the main search, 3 and 4 2 plies, and so on
+            int firstDepth = 2 + i / 2;
+            results.add(POOL.submit(() -> helper.search(state, firstDepth, Integer.MAX_VALUE, deadline)));
+        }
+
+        IMove move = main.search(state, deadline);
+        stop.set(true);
+
+        nodes = main.getNodes();
+        for (int i = 0; i < helpers.length; i++) {
+            try {
+                results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed", e.getCause());
+            }
+            nodes += helpers[i].getNodes();
+        }
+        return move;
+    }
+
+    /**
+     * @return the depth of the last iteration the main search finished in the last search
+     */
+    public int getDepth() {
+        return main.getDepth();
+    }
+
+    /**
+     * @return the number of nodes searched in the last search, over all threads
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the number of threads searching, the calling thread included
+     */
+    public int getThreads() {
+        return threads;
+    }
+}
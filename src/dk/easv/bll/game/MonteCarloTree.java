@@ -0,0 +1,387 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.Arrays;
+
+/**
+ * Monte Carlo Tree Search with UCT selection.
+ *
+ * Every iteration walks down the tree from the root, picking the child with the
+ * best UCT value, expands the leaf it ends in, plays a random game out from there
+ * and adds the result to every node on the way back up. The move to play is the
+ * root child that was visited the most.
+ *
+ * Nodes are kept in parallel arrays instead of node objects. A node's children
+ * are stored next to each other, so a node only needs the index of its first child
+ * and the number of children. A leaf is expanded the second time it is reached,
+ * which keeps the tree at about one node per iteration.
+ *
+ * Iterations play on one scratch BitboardField that is reset from the root with
+ * copyFrom, and random moves are drawn straight from the legal move masks, so
+ * searching does not allocate except when the node arrays grow.
+ *
+ * A bot can keep its tree between moves: advance moves the root to the position
+ * after its own move and the opponent's reply, and keeps what was already
+ * searched below it.
+ *
+ * A tree is not thread safe, use one per thread.
+ */
+public class MonteCarloTree {
+
+    /**
+     * Exploration constant of UCT, sqrt(2) for results between 0 and 1.
+     */
+    public static final double EXPLORATION = Math.sqrt(2);
+
+    /**
+     * Node limit of a tree made without one, about 70 MB of node arrays.
+     */
+    public static final int DEFAULT_MAX_NODES = 1 << 22;
+
+    private static final int INITIAL_CAPACITY = 1 << 16;
+    private static final int ROOT = 0;
+    private static final int UNEXPANDED = -1;
+
+    private BitboardField rootField;
+    private int rootPlayer;
+    private int rootMoveNumber;
+    private final int maxNodes;
+
+    // Node storage, indexed by node. score counts half points: 2 for a win, 1 for a tie,
+    // for the player that made the move into the node.
+    private int[] visits;
+    private int[] score;
+    private int[] firstChild;
+    private byte[] childCount;
+    private byte[] square;
+    private int size;
+
+    private final BitboardField field = new BitboardField();
+    private final int[] path = new int[82];
+    private long seed;
+    private long playouts;
+
+    /**
+     * @param state the position to search, it is copied and never changed
+     */
+    public MonteCarloTree(IGameState state) {
+        this(state, System.nanoTime(), DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param state the position to search, it is copied and never changed
+     * @param seed seed of the random playouts, the same seed and iterations give the same tree
+     * @param maxNodes the tree stops growing at this many nodes, searching then goes on without expanding
+     */
+    public MonteCarloTree(IGameState state, long seed, int maxNodes) {
+        rootField = BitboardField.of(state.getField());
+        rootPlayer = state.getMoveNumber() % 2;
+        rootMoveNumber = state.getMoveNumber();
+        this.maxNodes = maxNodes;
+        this.seed = seed == 0 ? 1 : seed;
+
+        int capacity = Math.min(INITIAL_CAPACITY, maxNodes);
+        visits = new int[capacity];
+        score = new int[capacity];
+        firstChild = new int[capacity];
+        childCount = new byte[capacity];
+        square = new byte[capacity];
+        firstChild[ROOT] = UNEXPANDED;
+        size = 1;
+    }
+
+    /**
+     * Makes state the root of the tree if it is the root position or comes from it by
+     * moves that are in the tree, at most two. The subtree below state is kept with
+     * all its statistics, the rest of the tree is dropped.
+     * @return false if state was not found, the tree is then unchanged
+     */
+    public boolean advance(IGameState state) {
+        int depth = state.getMoveNumber() - rootMoveNumber;
+        if (depth < 0 || depth > 2)
+            return false;
+        BitboardField target = BitboardField.of(state.getField());
+        field.copyFrom(rootField);
+        int node = findNode(ROOT, depth, target.getHash(), rootPlayer);
+        if (node < 0)
+            return false;
+        if (node != ROOT)
+            keepSubtree(node);
+        rootField = target;
+        rootPlayer = state.getMoveNumber() % 2;
+        rootMoveNumber = state.getMoveNumber();
+        return true;
+    }
+
+    // The node depth moves below node whose position has the key hash, or -1.
+    // field holds the position of node and is the same again on return.
+    private int findNode(int node, int depth, long hash, int player) {
+        if (depth == 0)
+            return field.getHash() == hash ? node : -1;
+        int first = firstChild[node];
+        if (first == UNEXPANDED)
+            return -1;
+        for (int child = first; child < first + childCount[node]; child++) {
+            int move = square[child];
+            int previousAvailable = field.getAvailableMicroboards();
+            field.play(move / 9, move % 9, player);
+            int found = findNode(child, depth - 1, hash, player ^ 1);
+            field.undo(move / 9, move % 9, previousAvailable);
+            if (found >= 0)
+                return found;
+        }
+        return -1;
+    }
+
+    // Replaces the tree by the subtree below node, copied breadth first into new
+    // arrays so the children of a node stay next to each other
+    private void keepSubtree(int node) {
+        int count = subtreeSize(node);
+        int capacity = Math.min(maxNodes, Math.max(INITIAL_CAPACITY, 2 * count));
+        int[] newVisits = new int[capacity];
+        int[] newScore = new int[capacity];
+        int[] newFirstChild = new int[capacity];
+        byte[] newChildCount = new byte[capacity];
+        byte[] newSquare = new byte[capacity];
+        int[] from = new int[count];
+
+        from[ROOT] = node;
+        int newSize = 1;
+        for (int i = 0; i < newSize; i++) {
+            int old = from[i];
+            newVisits[i] = visits[old];
+            newScore[i] = score[old];
+            newSquare[i] = square[old];
+            newChildCount[i] = childCount[old];
+            if (firstChild[old] == UNEXPANDED) {
+                newFirstChild[i] = UNEXPANDED;
+                continue;
+            }
+            newFirstChild[i] = newSize;
+            for (int child = firstChild[old]; child < firstChild[old] + childCount[old]; child++)
+                from[newSize++] = child;
+        }
+
+        visits = newVisits;
+        score = newScore;
+        firstChild = newFirstChild;
+        childCount = newChildCount;
+        square = newSquare;
+        size = newSize;
+    }
+
+    private int subtreeSize(int node) {
+        int count = 1;
+        int first = firstChild[node];
+        if (first != UNEXPANDED) {
+            for (int child = first; child < first + childCount[node]; child++)
+                count += subtreeSize(child);
+        }
+        return count;
+    }
+
+    /**
+     * Searches until System.nanoTime() reaches deadline.
+     * @return the number of iterations run
+     */
+    public int searchUntil(long deadline) {
+        int iterations = 0;
+        do {
+            for (int i = 0; i < 16; i++)
+                iterate();
+            iterations += 16;
+        } while (System.nanoTime() - deadline < 0);
+        return iterations;
+    }
+
+    /**
+     * Runs a fixed number of iterations.
+     */
+    public void search(int iterations) {
+        for (int i = 0; i < iterations; i++)
+            iterate();
+    }
+
+    /**
+     * One iteration: select, expand, play out and back up the result.
+     */
+    public void iterate() {
+        BitboardField field = this.field;
+        field.copyFrom(rootField);
+        int player = rootPlayer;
+        int node = ROOT;
+        int depth = 0;
+        path[0] = ROOT;
+        boolean gameOver = isGameOver(field);
+
+        while (!gameOver) {
+            if (firstChild[node] == UNEXPANDED) {
+                if (visits[node] == 0 && node != ROOT || !expand(node, field))
+                    break;
+            }
+            node = select(node);
+            int move = square[node];
+            field.play(move / 9, move % 9, player);
+            player ^= 1;
+            path[++depth] = node;
+            gameOver = isGameOver(field);
+        }
+
+        int winner = gameOver ? field.getWinner() : playout(field, player);
+        playouts++;
+
+        visits[ROOT]++;
+        // The move into path[d] was made by the player to move at depth d-1
+        int mover = rootPlayer;
+        for (int d = 1; d <= depth; d++) {
+            int n = path[d];
+            visits[n]++;
+            if (winner == mover)
+                score[n] += 2;
+            else if (winner < 0)
+                score[n] += 1;
+            mover ^= 1;
+        }
+    }
+
+    private static boolean isGameOver(BitboardField field) {
+        return field.getWinner() >= 0 || !field.hasAvailableMoves();
+    }
+
+    // Adds a child for every legal move of field, which is the position of node
+    private boolean expand(int node, BitboardField field) {
+        int count = field.countAvailableMoves();
+        if (!ensureCapacity(size + count))
+            return false;
+        firstChild[node] = size;
+        childCount[node] = (byte) count;
+        for (int i = 0; i < count; i++) {
+            int child = size + i;
+            square[child] = (byte) field.availableSquare(i);
+            firstChild[child] = UNEXPANDED;
+        }
+        size += count;
+        return true;
+    }
+
+    private boolean ensureCapacity(int needed) {
+        if (needed <= visits.length)
+            return true;
+        if (needed > maxNodes)
+            return false;
+        int capacity = (int) Math.min(maxNodes, Math.max(needed, 2L * visits.length));
+        visits = Arrays.copyOf(visits, capacity);
+        score = Arrays.copyOf(score, capacity);
+        firstChild = Arrays.copyOf(firstChild, capacity);
+        childCount = Arrays.copyOf(childCount, capacity);
+        square = Arrays.copyOf(square, capacity);
+        return true;
+    }
+
+    // The child with the highest UCT value, children that were never visited first
+    private int select(int node) {
+        int first = firstChild[node];
+        int end = first + childCount[node];
+        double logVisits = Math.log(visits[node]);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int n = visits[child];
+            if (n == 0)
+                return child;
+            double value = score[child] / (2.0 * n) + EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // Plays random moves until the game is over, returns the winner or -1 for a tie
+    private int playout(BitboardField field, int player) {
+        while (true) {
+            int count = field.countAvailableMoves();
+            if (count == 0)
+                return -1;
+            int move = field.availableSquare(nextInt(count));
+            field.play(move / 9, move % 9, player);
+            if (field.getWinner() >= 0)
+                return player;
+            player ^= 1;
+        }
+    }
+
+    // xorshift64*, cheaper than java.util.Random and not shared between threads
+    private int nextInt(int bound) {
+        seed ^= seed >>> 12;
+        seed ^= seed << 25;
+        seed ^= seed >>> 27;
+        long random = (seed * 0x2545F4914F6CDD1DL) >>> 32;
+        return (int) ((random * bound) >>> 32);
+    }
+
+    /**
+     * @return the most visited move at the root as x*9 + y, or -1 if the root has no moves
+     * or was not expanded yet
+     */
+    public int getBestSquare() {
+        if (firstChild[ROOT] == UNEXPANDED)
+            return -1;
+        int first = firstChild[ROOT];
+        int end = first + childCount[ROOT];
+        int best = -1;
+        for (int child = first; child < end; child++) {
+            if (best < 0 || visits[child] > visits[best])
+                best = child;
+        }
+        return best < 0 ? -1 : square[best];
+    }
+
+    /**
+     * @return the most visited move at the root, or null, see getBestSquare
+     */
+    public IMove getBestMove() {
+        int best = getBestSquare();
+        return best < 0 ? null : Move.of(best);
+    }
+
+    /**
+     * Adds the visit count of every root move to visitsBySquare, so the results of
+     * several trees searched from the same position can be summed.
+     * @param visitsBySquare 81 counters, indexed x*9 + y
+     */
+    public void addRootVisits(long[] visitsBySquare) {
+        if (firstChild[ROOT] == UNEXPANDED)
+            return;
+        int first = firstChild[ROOT];
+        int end = first + childCount[ROOT];
+        for (int child = first; child < end; child++)
+            visitsBySquare[square[child]] += visits[child];
+    }
+
+    /**
+     * @return the number of playouts since the tree was made
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * @return the number of playouts that went through the root, including those
+     * kept from earlier searches by advance
+     */
+    public int getRootVisits() {
+        return visits[ROOT];
+    }
+
+    /**
+     * @return the number of nodes in the tree
+     */
+    public int getNodeCount() {
+        return size;
+    }
+}
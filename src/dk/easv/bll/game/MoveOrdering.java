@@ -0,0 +1,114 @@
+package dk.easv.bll.game;
+
+import java.util.Arrays;
+
+/**
+ * Move ordering for alpha-beta searches on a GameSimulator.
+ *
+ * Alpha-beta cuts off the most when the best move of a node is searched first,
+ * so order sorts the moves of a node by how likely they are to be best:
+ * <ol>
+ *     <li>the best move stored for the position in the transposition table</li>
+ *     <li>moves that win their micro board for the player to move</li>
+ *     <li>moves that stop the opponent from winning their micro board</li>
+ *     <li>the two killer moves of the ply, moves that caused a cutoff in a sibling node</li>
+ *     <li>everything else, by the history table: how often and how deep each square caused a cutoff</li>
+ * </ol>
+ * The search reports every move that causes a cutoff with cutoff. Sorting is an
+ * insertion sort on a scratch array, so ordering does not allocate.
+ *
+ * One instance belongs to one search on one thread. Killers and history are kept
+ * between the iterations of iterative deepening and between moves, call nextSearch
+ * when a new move is searched.
+ */
+public class MoveOrdering {
+
+    private static final int TABLE_MOVE = 1 << 30;
+    private static final int WIN = 1 << 29;
+    private static final int BLOCK = 1 << 28;
+    private static final int FIRST_KILLER = 1 << 27;
+    private static final int SECOND_KILLER = 1 << 26;
+    // History scores are halved when one gets this high, so they stay below the killers
+    private static final int HISTORY_LIMIT = 1 << 24;
+
+    private final int[][] killers;
+    private final int[][] history = new int[2][81];
+    private final int[] scores = new int[81];
+
+    /**
+     * @param maxPly the number of plies the search can go below its root
+     */
+    public MoveOrdering(int maxPly) {
+        killers = new int[maxPly + 1][2];
+        for (int[] killer : killers)
+            Arrays.fill(killer, -1);
+    }
+
+    /**
+     * Sorts the available moves of the simulator's position, best first.
+     * @param moves the available moves as x*9 + y, sorted in place
+     * @param count the number of moves
+     * @param tableMove the best move from the transposition table, or -1. It only
+     *                  counts when it is one of the moves, so a move stored for
+     *                  another position that hashed the same is never played.
+     * @param ply the distance from the root of the search
+     */
+    public void order(GameSimulator simulator, int[] moves, int count, int tableMove, int ply) {
+        int player = simulator.getCurrentPlayer();
+        int opponent = 1 - player;
+        int[] killer = killers[ply];
+        for (int i = 0; i < count; i++) {
+            int move = moves[i];
+            int score;
+            if (move == tableMove) score = TABLE_MOVE;
+            else if (simulator.completesLine(move, player)) score = WIN;
+            else if (simulator.completesLine(move, opponent)) score = BLOCK;
+            else if (move == killer[0]) score = FIRST_KILLER;
+            else if (move == killer[1]) score = SECOND_KILLER;
+            else score = history[player][move];
+
+            // Insertion sort, moves with equal scores keep their order
+            int j = i;
+            while (j > 0 && scores[j - 1] < score) {
+                scores[j] = scores[j - 1];
+                moves[j] = moves[j - 1];
+                j--;
+            }
+            scores[j] = score;
+            moves[j] = move;
+        }
+    }
+
+    /**
+     * Records a move that caused a beta cutoff.
+     * @param player the player that played the move
+     * @param move the move as x*9 + y
+     * @param depth the depth left at the node, deeper cutoffs count more
+     * @param ply the distance from the root of the search
+     */
+    public void cutoff(int player, int move, int depth, int ply) {
+        int[] killer = killers[ply];
+        if (killer[0] != move) {
+            killer[1] = killer[0];
+            killer[0] = move;
+        }
+        int[] scores = history[player];
+        scores[move] += depth * depth;
+        if (scores[move] >= HISTORY_LIMIT) {
+            for (int square = 0; square < 81; square++)
+                scores[square] >>= 1;
+        }
+    }
+
+    /**
+     * Starts the search of a new move: the killers are forgotten, the history is halved.
+     */
+    public void nextSearch() {
+        for (int[] killer : killers)
+            Arrays.fill(killer, -1);
+        for (int[] scores : history) {
+            for (int square = 0; square < 81; square++)
+                scores[square] >>= 1;
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.field.IField;
+import dk.easv.bll.field.Zobrist;
+import dk.easv.bll.move.IMove;
+
+import java.util.List;
+
+/**
+ * An immutable game state. Playing a move returns a new Position and leaves this
+ * one as it is, so a Position can be handed between threads and kept in search
+ * trees without copying or locking.
+ *
+ * The board is a BitboardField that is never changed after the Position is built
+ * and never handed out, so deriving a position copies a few primitive words; with
+ * the whole board in bit masks that is cheaper than sharing micro boards would be.
+ *
+ * It is an IGameState, so it can be given to a bot or anything else that reads a
+ * state. getField returns a copy that may be changed freely, and the setters throw
+ * UnsupportedOperationException.
+ */
+public final class Position implements IGameState {
+
+    /**
+     * The empty board, player 0 to move.
+     */
+    public static final Position START = new Position(new BitboardField(), 0, 0, 1000);
+
+    private final BitboardField field;
+    private final int moveNumber;
+    private final int roundNumber;
+    private final int timePerMove;
+
+    private Position(BitboardField field, int moveNumber, int roundNumber, int timePerMove) {
+        this.field = field;
+        this.moveNumber = moveNumber;
+        this.roundNumber = roundNumber;
+        this.timePerMove = timePerMove;
+    }
+
+    /**
+     * @return a Position holding a snapshot of state
+     */
+    public static Position of(IGameState state) {
+        if (state instanceof Position)
+            return (Position) state;
+        return new Position(BitboardField.of(state.getField()), state.getMoveNumber(),
+                state.getRoundNumber(), state.getTimePerMove());
+    }
+
+    /**
+     * @param square x*9 + y
+     * @return true if the current player may play there
+     */
+    public boolean isLegal(int square) {
+        return !isGameOver() && field.isLegal(square);
+    }
+
+    /**
+     * Plays a move for the current player.
+     * @param square the move as x*9 + y
+     * @return the position after the move, this position is not changed
+     * @throws IllegalArgumentException if the move is not legal
+     */
+    public Position play(int square) {
+        if (!isLegal(square))
+            throw new IllegalArgumentException("Illegal move " + square + " in position " + Long.toHexString(getHash()));
+        BitboardField next = new BitboardField(field);
+        next.play(square / 9, square % 9, getCurrentPlayer());
+        int nextMoveNumber = moveNumber + 1;
+        int nextRoundNumber = nextMoveNumber % 2 == 0 ? roundNumber + 1 : roundNumber;
+        return new Position(next, nextMoveNumber, nextRoundNumber, timePerMove);
+    }
+
+    /**
+     * @see #play(int)
+     */
+    public Position play(IMove move) {
+        if (move.getX() < 0 || 9 <= move.getX() || move.getY() < 0 || 9 <= move.getY())
+            throw new IllegalArgumentException("Illegal move " + move);
+        return play(move.getX() * 9 + move.getY());
+    }
+
+    /**
+     * @return the player to move, 0 or 1
+     */
+    public int getCurrentPlayer() {
+        return moveNumber % 2;
+    }
+
+    /**
+     * @return the player (0 or 1) that won the game, or -1
+     */
+    public int getWinner() {
+        return field.getWinner();
+    }
+
+    public boolean isGameOver() {
+        return getGameOver() != GameManager.GameOverState.Active;
+    }
+
+    public GameManager.GameOverState getGameOver() {
+        if (field.getWinner() >= 0)
+            return GameManager.GameOverState.Win;
+        if (field.isTie())
+            return GameManager.GameOverState.Tie;
+        return GameManager.GameOverState.Active;
+    }
+
+    /**
+     * @param buffer room for at least 81 squares
+     * @return the number of available moves written to buffer, as x*9 + y
+     */
+    public int availableMovesInto(int[] buffer) {
+        return field.availableMovesInto(buffer);
+    }
+
+    /**
+     * @return a new list of the available moves
+     */
+    public List<IMove> getAvailableMoves() {
+        return field.getAvailableMoves();
+    }
+
+    /**
+     * @return a mutable copy of this position, e.g. to hand to a GameManager
+     */
+    public GameState toGameState() {
+        return new GameState(this);
+    }
+
+    /**
+     * @return a copy of the board, changing it does not change this position
+     */
+    @Override
+    public IField getField() {
+        return field.copy();
+    }
+
+    @Override
+    public int getMoveNumber() {
+        return moveNumber;
+    }
+
+    @Override
+    public void setMoveNumber(int moveNumber) {
+        throw new UnsupportedOperationException("Positions can not be changed");
+    }
+
+    @Override
+    public int getRoundNumber() {
+        return roundNumber;
+    }
+
+    @Override
+    public void setRoundNumber(int roundNumber) {
+        throw new UnsupportedOperationException("Positions can not be changed");
+    }
+
+    @Override
+    public int getTimePerMove() {
+        return timePerMove;
+    }
+
+    @Override
+    public void setTimePerMove(int milliSeconds) {
+        throw new UnsupportedOperationException("Positions can not be changed");
+    }
+
+    @Override
+    public long getHash() {
+        long hash = field.getHash();
+        return moveNumber % 2 == 0 ? hash : hash ^ Zobrist.PLAYER_1_TO_MOVE;
+    }
+}
@@ -0,0 +1,268 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Iterative deepening Principal Variation Search (NegaScout) on a GameSimulator,
+ * for bots that bring their own evaluation, see IEvaluator.
+ *
+ * The search is negamax alpha-beta. With well ordered moves the first move of a node
+ * is usually its best, so only that one is searched with the full window. The others
+ * are searched with a null window (alpha, alpha + 1), which only proves that they are
+ * no better and cuts off much sooner, and are searched again with the full window in
+ * the rare case that one turns out better.
+ *
+ * Each iteration after the first starts with an aspiration window around the score
+ * of the one before. Scores rarely change much from one depth to the next, and the
+ * narrow window cuts off more. When the score falls outside it, the window is widened
+ * on that side and the depth is searched again.
+ *
+ * Positions are kept in a TranspositionTable and moves are sorted by MoveOrdering,
+ * both kept between moves. A SearchDeadline stops the search, the unfinished
+ * iteration is dropped. Scores are for the player to move; won games score
+ * WIN minus the number of plies to the win, so quicker wins score higher.
+ *
+ * One instance searches on one thread, LazySmpSearch runs several of them on one
+ * table. See dk.easv.bll.benchmark.SearchBenchmark to compare the number of nodes
+ * searched with and without the null windows and the aspiration windows.
+ */
+public class PrincipalVariationSearch {
+
+    /** Score of a won game, a score above WIN - MAX_DEPTH is a win found by the search */
+    public static final int WIN = 1 << 28;
+    private static final int INFINITY = 1 << 30;
+    private static final int MAX_DEPTH = 81;
+    private static final int DEFAULT_ASPIRATION_WINDOW = 50;
+
+    private final IEvaluator evaluator;
+    private final TranspositionTable table;
+    private final MoveOrdering ordering = new MoveOrdering(MAX_DEPTH);
+    private final SearchDeadline deadline = new SearchDeadline();
+    private final int[][] moveBuffers = new int[MAX_DEPTH + 1][81];
+    private GameSimulator simulator;
+
+    private boolean principalVariation = true;
+    private int aspirationWindow = DEFAULT_ASPIRATION_WINDOW;
+
+    // Results of the last search
+    private int rootMove;
+    private int depth;
+    private int score;
+    private int researches;
+    private long nodes;
+
+    /**
+     * @param evaluator scores the positions at the end of the search
+     */
+    public PrincipalVariationSearch(IEvaluator evaluator) {
+        this(evaluator, new TranspositionTable(20));
+    }
+
+    /**
+     * @param evaluator scores the positions at the end of the search
+     * @param table where searched positions are stored, only share it with searches using the same evaluator
+     */
+    public PrincipalVariationSearch(IEvaluator evaluator, TranspositionTable table) {
+        this.evaluator = evaluator;
+        this.table = table;
+    }
+
+    /**
+     * Turns the null window searches off or on, off is plain alpha-beta. On by default.
+     */
+    public void setPrincipalVariation(boolean principalVariation) {
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @param aspirationWindow how far from the last iteration's score the first window
+     *                         of an iteration reaches, 0 to search every iteration with
+     *                         the full window
+     */
+    public void setAspirationWindow(int aspirationWindow) {
+        if (aspirationWindow < 0)
+            throw new IllegalArgumentException("aspirationWindow must be 0 or more, was " + aspirationWindow);
+        this.aspirationWindow = aspirationWindow;
+    }
+
+    /**
+     * @param stop when set to true by another thread, the search stops as if the deadline had passed
+     */
+    void setStop(AtomicBoolean stop) {
+        deadline.setStop(stop);
+    }
+
+    /**
+     * Searches state deeper and deeper until System.nanoTime() reaches deadline.
+     * @return the best move of the deepest iteration that finished, or null when the game is over
+     */
+    public IMove search(IGameState state, long deadline) {
+        return search(state, MAX_DEPTH, deadline);
+    }
+
+    /**
+     * Searches state deeper and deeper until maxDepth is done or System.nanoTime() reaches deadline.
+     * Also stops when a win or a loss is certain, as searching deeper does not change it.
+     * @return the best move of the deepest iteration that finished, or null when the game is over
+     */
+    public IMove search(IGameState state, int maxDepth, long deadline) {
+        return search(state, 1, maxDepth, deadline);
+    }
+
+    /**
+     * Like search(state, maxDepth, deadline), but the first iteration is firstDepth.
+     */
+    IMove search(IGameState state, int firstDepth, int maxDepth, long deadline) {
+        simulator = new GameSimulator(state);
+        ordering.nextSearch();
+        this.deadline.start(deadline);
+        depth = 0;
+        score = 0;
+        researches = 0;
+        nodes = 0;
+        if (simulator.getGameOver() != GameManager.GameOverState.Active)
+            return null;
+        int[] moves = moveBuffers[0];
+        if (simulator.availableMovesInto(moves) == 0)
+            return null;
+        int bestMove = moves[0]; // played if not even the first iteration finishes
+
+        for (int iteration = firstDepth; iteration <= Math.min(maxDepth, MAX_DEPTH); iteration++) {
+            int iterationScore = searchRoot(iteration, score, iteration > firstDepth);
+            if (this.deadline.isExpired())
+                break;
+            bestMove = rootMove;
+            score = iterationScore;
+            depth = iteration;
+            if (Math.abs(score) > WIN - MAX_DEPTH)
+                break;
+        }
+        nodes = this.deadline.getNodes();
+        return Move.of(bestMove);
+    }
+
+    // One iteration, with an aspiration window around the score of the last one if there was one
+    private int searchRoot(int depth, int previous, boolean hasPrevious) {
+        if (aspirationWindow == 0 || !hasPrevious)
+            return search(depth, -INFINITY, INFINITY, 0);
+        int delta = aspirationWindow;
+        int alpha = previous - delta;
+        int beta = previous + delta;
+        while (true) {
+            int score = search(depth, alpha, beta, 0);
+            if (deadline.isExpired())
+                return 0;
+            if (score > alpha && score < beta)
+                return score;
+            // Outside the window, search again with that side 4 times as wide
+            researches++;
+            delta = Math.min(INFINITY, delta * 4);
+            if (score <= alpha)
+                alpha = Math.max(-INFINITY, previous - delta);
+            else
+                beta = Math.min(INFINITY, previous + delta);
+        }
+    }
+
+    private int search(int depth, int alpha, int beta, int ply) {
+        if (deadline.tick())
+            return 0; // Out of time, the iteration is dropped
+        if (simulator.getGameOver() != GameManager.GameOverState.Active)
+            return simulator.getWinner() >= 0 ? -(WIN - ply) : 0; // the player who just moved won
+        int[] moves = moveBuffers[ply];
+        int count = simulator.availableMovesInto(moves);
+        if (count == 0)
+            return 0;
+        int player = simulator.getCurrentPlayer();
+        if (depth == 0)
+            return evaluator.evaluate(simulator, moves, count, player);
+
+        long key = simulator.getHash();
+        long entry = table.probe(key);
+        // The window is counted from the root, so the stored score is compared after converting it
+        int stored = fromTable(TranspositionTable.score(entry), ply);
+        if (ply > 0 && TranspositionTable.isCutoff(entry, stored, depth, alpha, beta))
+            return stored;
+        ordering.order(simulator, moves, count, TranspositionTable.move(entry), ply);
+
+        int alphaBefore = alpha;
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            simulator.play(moves[i]);
+            int score;
+            if (i == 0 || !principalVariation) {
+                score = -search(depth - 1, -beta, -alpha, ply + 1);
+            }
+            else {
+                // Only prove the move is no better than the best so far
+                score = -search(depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (score > alpha && score < beta)
+                    score = -search(depth - 1, -beta, -alpha, ply + 1);
+            }
+            simulator.undo();
+            if (deadline.isExpired())
+                return 0;
+
+            if (score > best) {
+                best = score;
+                bestMove = moves[i];
+            }
+            if (score > alpha)
+                alpha = score;
+            if (alpha >= beta) {
+                ordering.cutoff(player, moves[i], depth, ply);
+                break;
+            }
+        }
+        table.store(key, depth, TranspositionTable.boundOf(best, alphaBefore, beta), toTable(best, ply), bestMove);
+        if (ply == 0)
+            rootMove = bestMove;
+        return best;
+    }
+
+    // Wins are stored as plies from the stored position, not from the root
+    private static int toTable(int score, int ply) {
+        if (score > WIN - MAX_DEPTH) return score + ply;
+        if (score < -(WIN - MAX_DEPTH)) return score - ply;
+        return score;
+    }
+
+    private static int fromTable(int score, int ply) {
+        if (score > WIN - MAX_DEPTH) return score - ply;
+        if (score < -(WIN - MAX_DEPTH)) return score + ply;
+        return score;
+    }
+
+    /**
+     * @return the depth of the last iteration that finished in the last search
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the score of the last search for the player to move, see WIN
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the number of nodes searched in the last search, the dropped iteration included
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return how many times the last search had to search a depth again because the
+     * score fell outside the aspiration window
+     */
+    public int getResearches() {
+        return researches;
+    }
+}
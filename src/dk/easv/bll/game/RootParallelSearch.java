@@ -0,0 +1,114 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Root parallel Monte Carlo Tree Search: every thread searches its own
+ * MonteCarloTree from the same position with its own random playouts, and when
+ * time is up the visit counts of the root moves are summed over all trees. The
+ * most visited move overall is played.
+ *
+ * The trees share nothing while searching, so the threads never wait for each
+ * other and the number of playouts grows with the number of cores. The price is
+ * that the deeper parts of the trees are searched once per thread.
+ *
+ * The worker threads are one pool of daemon threads, one per core, shared by all
+ * root parallel searches, so searches made for every game or every bot do not each
+ * start threads of their own. A bot should make one search and use it for every
+ * move: the trees are kept, and each search goes on from them when they hold its
+ * position, see MonteCarloTree.advance.
+ */
+public class RootParallelSearch {
+
+    // Shared by all instances, see the class comment
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "RootParallelSearch");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final int threads;
+    private final MonteCarloTree[] trees;
+    private long seed = System.nanoTime();
+    private long playouts;
+
+    /**
+     * @param threads the number of trees searched at the same time, e.g.
+     *                Runtime.getRuntime().availableProcessors()
+     */
+    public RootParallelSearch(int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        this.threads = threads;
+        trees = new MonteCarloTree[threads];
+    }
+
+    /**
+     * Searches state on all threads until System.nanoTime() reaches deadline.
+     * @return the move with the most visits summed over all trees, or null when the game is over
+     */
+    public IMove search(IGameState state, long deadline) {
+        List<Future<MonteCarloTree>> results = new ArrayList<>(threads);
+        int[] iterations = new int[threads];
+        for (int i = 0; i < threads; i++) {
+            int index = i;
+            MonteCarloTree previous = trees[i];
+            // Seeds far apart, so the trees play different random games
+            long treeSeed = seed += 0x9E3779B97F4A7C15L;
+            results.add(POOL.submit(() -> {
+                MonteCarloTree tree = previous;
+                if (tree == null || !tree.advance(state))
+                    tree = new MonteCarloTree(state, treeSeed, MonteCarloTree.DEFAULT_MAX_NODES);
+                iterations[index] = tree.searchUntil(deadline);
+                return tree;
+            }));
+        }
+
+        long[] visits = new long[81];
+        playouts = 0;
+        for (int i = 0; i < threads; i++) {
+            MonteCarloTree tree;
+            try {
+                tree = results.get(i).get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed", e.getCause());
+            }
+            trees[i] = tree;
+            tree.addRootVisits(visits);
+            playouts += iterations[i];
+        }
+
+        int best = -1;
+        for (int square = 0; square < 81; square++) {
+            if (visits[square] > 0 && (best < 0 || visits[square] > visits[best]))
+                best = square;
+        }
+        return best < 0 ? null : Move.of(best);
+    }
+
+    /**
+     * @return the number of playouts of the last search, over all threads
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * @return the number of threads searching
+     */
+    public int getThreads() {
+        return threads;
+    }
+}
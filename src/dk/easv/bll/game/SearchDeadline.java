@@ -0,0 +1,90 @@
+package dk.easv.bll.game;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Deadline for a search that has to stop in the middle of an iteration.
+ *
+ * The search calls tick once per node. Reading the clock costs about as much as
+ * searching a node, so tick counts nodes and only reads System.nanoTime every
+ * CHECK_INTERVAL nodes. Once the deadline has passed, tick and isExpired stay true
+ * until the next start, so every node on the way back to the root sees it and
+ * returns at once. The scores it returns then are not real, the search must drop
+ * the unfinished iteration and not store anything from it.
+ *
+ * Another thread can stop the search early through a stop flag, which is read
+ * together with the clock.
+ */
+public class SearchDeadline {
+
+    private static final int CHECK_INTERVAL = 256;
+
+    private long deadline;
+    private int countdown;
+    private boolean expired;
+    private long nodes;
+    // Set by another thread to stop the search before the deadline, or null
+    private AtomicBoolean stop;
+
+    /**
+     * @param stop when set to true the search stops as if the deadline had passed, null for none
+     */
+    void setStop(AtomicBoolean stop) {
+        this.stop = stop;
+    }
+
+    /**
+     * Starts timing a new search.
+     * @param deadline the System.nanoTime() the search must stop at
+     */
+    public void start(long deadline) {
+        this.deadline = deadline;
+        countdown = CHECK_INTERVAL;
+        expired = isDue();
+        nodes = 0;
+    }
+
+    /**
+     * Counts a node.
+     * @return true when the deadline has passed and the search must stop
+     */
+    public boolean tick() {
+        nodes++;
+        if (--countdown > 0)
+            return expired;
+        countdown = CHECK_INTERVAL;
+        if (isDue())
+            expired = true;
+        return expired;
+    }
+
+    private boolean isDue() {
+        return System.nanoTime() - deadline >= 0 || (stop != null && stop.get());
+    }
+
+    /**
+     * @return true when the deadline was seen to pass, the result of the current iteration is not complete
+     */
+    public boolean isExpired() {
+        return expired;
+    }
+
+    /**
+     * @return the number of nodes counted since start
+     */
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @param state the state the bot is asked to move in
+     * @param maxTimeMs what the bot would use of a move of 1000 ms
+     * @return maxTimeMs, cut down to the same share of the state's time per move when that is shorter
+     */
+    public static long budgetMs(IGameState state, int maxTimeMs) {
+        int timePerMove = state.getTimePerMove();
+        if (timePerMove <= 0 || timePerMove >= 1000)
+            return maxTimeMs;
+        return Math.max(1, (long) maxTimeMs * timePerMove / 1000);
+    }
+}
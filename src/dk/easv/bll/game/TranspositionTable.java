@@ -0,0 +1,172 @@
+package dk.easv.bll.game;
+
+import java.util.Arrays;
+
+/**
+ * Fixed size transposition table for alpha-beta searches, keyed by 64 bit position
+ * keys such as IGameState.getHash.
+ *
+ * An entry holds the depth a position was searched to, whether the score is exact
+ * or a bound, the score and the best move, packed into one long. The table is two
+ * long arrays, a power of two number of buckets with two entries each: the first
+ * entry of a bucket keeps the deepest search stored there, the second one whatever
+ * was stored last. Storing and probing does not allocate.
+ *
+ * Each entry is stored as (key ^ data, data). A probe only accepts an entry whose
+ * two words give back its key, so if threads share a table and one of them reads an
+ * entry while another writes it, the half written entry is seen as a miss instead of
+ * as another position's score. No locks are needed.
+ */
+public class TranspositionTable {
+
+    /** The score is the value of the position */
+    public static final int EXACT = 1;
+    /** The value of the position is at least the score */
+    public static final int LOWER_BOUND = 2;
+    /** The value of the position is at most the score */
+    public static final int UPPER_BOUND = 3;
+
+    /**
+     * What probe returns when the position is not in the table.
+     */
+    public static final long MISS = 0;
+
+    /** The deepest search an entry can hold, the depth has 8 bits */
+    public static final int MAX_DEPTH = 255;
+
+    private final long[] keys;
+    private final long[] data;
+    private final int bucketMask;
+
+    /**
+     * @param bucketBits the table gets 2^bucketBits buckets of two entries, 16 bytes per entry
+     */
+    public TranspositionTable(int bucketBits) {
+        if (bucketBits < 0 || bucketBits > 26)
+            throw new IllegalArgumentException("bucketBits must be 0..26, was " + bucketBits);
+        keys = new long[2 << bucketBits];
+        data = new long[2 << bucketBits];
+        bucketMask = (1 << bucketBits) - 1;
+    }
+
+    /**
+     * @return the entry stored for key, or MISS. Read it with depth, bound, score and move.
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long entry = data[index];
+        if (entry != MISS && (keys[index] ^ entry) == key)
+            return entry;
+        entry = data[index + 1];
+        if (entry != MISS && (keys[index + 1] ^ entry) == key)
+            return entry;
+        return MISS;
+    }
+
+    /**
+     * Stores the result of searching a position.
+     * @param depth the depth searched, 0..MAX_DEPTH
+     * @param bound EXACT, LOWER_BOUND or UPPER_BOUND
+     * @param move the best move as x*9 + y, or -1
+     * @throws IllegalArgumentException if depth is out of range, it would be stored as another depth
+     */
+    public void store(long key, int depth, int bound, int score, int move) {
+        if (depth < 0 || depth > MAX_DEPTH)
+            throw new IllegalArgumentException("depth must be 0.." + MAX_DEPTH + ", was " + depth);
+        long entry = (score & 0xFFFFFFFFL)
+                | (long) (move + 1) << 32
+                | (long) depth << 39
+                | (long) bound << 47;
+        int index = index(key);
+        long deepest = data[index];
+        if (deepest == MISS || (keys[index] ^ deepest) == key || depth >= depth(deepest)) {
+            // The entry it pushes out of the first slot gets the second slot
+            if (deepest != MISS && (keys[index] ^ deepest) != key)
+                write(index + 1, keys[index] ^ deepest, deepest);
+            write(index, key, entry);
+        }
+        else {
+            write(index + 1, key, entry);
+        }
+    }
+
+    private void write(int index, long key, long entry) {
+        data[index] = entry;
+        keys[index] = key ^ entry;
+    }
+
+    private int index(long key) {
+        return ((int) (key >>> 32) & bucketMask) << 1;
+    }
+
+    /**
+     * Empties the table.
+     */
+    public void clear() {
+        Arrays.fill(keys, 0);
+        Arrays.fill(data, 0);
+    }
+
+    /**
+     * @return the depth the entry's position was searched to
+     */
+    public static int depth(long entry) {
+        return (int) (entry >>> 39) & 0xFF;
+    }
+
+    /**
+     * @return EXACT, LOWER_BOUND or UPPER_BOUND
+     */
+    public static int bound(long entry) {
+        return (int) (entry >>> 47) & 3;
+    }
+
+    /**
+     * @return the score of the entry
+     */
+    public static int score(long entry) {
+        return (int) entry;
+    }
+
+    /**
+     * @return the best move of the entry as x*9 + y, or -1
+     */
+    public static int move(long entry) {
+        return (int) ((entry >>> 32) & 0x7F) - 1;
+    }
+
+    /**
+     * Checks whether an entry searched to at least depth decides a node searched with
+     * the window alpha..beta without searching it again.
+     * @return true if the entry's score is exact, or a bound outside the window
+     */
+    public static boolean isCutoff(long entry, int depth, int alpha, int beta) {
+        return isCutoff(entry, score(entry), depth, alpha, beta);
+    }
+
+    /**
+     * Same as isCutoff(entry, depth, alpha, beta), for searches that store another
+     * score than they search with, such as wins counted from the stored position.
+     * @param score the entry's score as the search sees it at this node
+     */
+    public static boolean isCutoff(long entry, int score, int depth, int alpha, int beta) {
+        if (entry == MISS || depth(entry) < depth)
+            return false;
+        switch (bound(entry)) {
+            case EXACT: return true;
+            case LOWER_BOUND: return score >= beta;
+            case UPPER_BOUND: return score <= alpha;
+            default: return false;
+        }
+    }
+
+    /**
+     * @param best the best score found searching with the window alpha..beta
+     * @return the bound the score is for the value of the position
+     */
+    public static int boundOf(int best, int alpha, int beta) {
+        if (best <= alpha) return UPPER_BOUND;
+        if (best >= beta) return LOWER_BOUND;
+        return EXACT;
+    }
+}
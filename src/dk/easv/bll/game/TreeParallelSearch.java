@@ -0,0 +1,378 @@
+package dk.easv.bll.game;
+
+import dk.easv.bll.field.BitboardField;
+import dk.easv.bll.move.IMove;
+import dk.easv.bll.move.Move;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tree parallel Monte Carlo Tree Search: all threads search one shared tree.
+ *
+ * The tree is laid out like MonteCarloTree, parallel arrays with the children of a
+ * node next to each other, but the arrays are never moved while threads read them.
+ * They are made before a search, big enough for the nodes a search of that length
+ * can add, and only made bigger between searches. Nothing is locked:
+ * <ul>
+ * <li>Visits and scores are changed with atomic adds through VarHandles. Selection
+ * reads them without synchronization, a slightly stale count only makes a thread
+ * pick a slightly different child.</li>
+ * <li>A thread expands a leaf by moving its firstChild from UNEXPANDED to EXPANDING
+ * with compareAndSet, claiming room for the children with one atomic add on the
+ * node count, and publishing the children with a release store. A thread that finds
+ * a leaf being expanded plays out from the leaf instead of waiting. When the claimed
+ * room does not fit, the leaf is put back as unexpanded and the node count is left
+ * past the end, so every later claim of the search fails too. A later search that
+ * keeps the tree grows the arrays first and expands such leaves then.</li>
+ * <li>Virtual loss: a thread counts VIRTUAL_LOSS lost visits on every node on its
+ * way down and takes them back when the result is in. Until then the path looks
+ * worse to the other threads, so they spread over different branches instead of
+ * all playing out the same leaf.</li>
+ * </ul>
+ *
+ * The worker threads are one pool of daemon threads, one per core, shared by all
+ * tree parallel searches. The tree is kept for the life of the search object and
+ * reused for every search, so a bot should make one and use it for every move.
+ * When the next search starts from a position in the tree, at most two moves
+ * below the last root, that node becomes the root and keeps its statistics.
+ * Instead of copying the subtree out as MonteCarloTree does, the rest of the tree
+ * is just left unused, until half of maxNodes is used and the next search starts
+ * over.
+ * See dk.easv.bll.benchmark.SearchBenchmark for how it scales with the threads.
+ */
+public class TreeParallelSearch {
+
+    /**
+     * Lost visits a thread adds to each node on its path while its playout is running.
+     */
+    public static final int VIRTUAL_LOSS = 3;
+
+    private static final int UNEXPANDED = -1;
+    private static final int EXPANDING = -2;
+
+    private static final VarHandle INTS = MethodHandles.arrayElementVarHandle(int[].class);
+
+    // Nodes one thread adds to the tree per millisecond, a generous guess used to size the arrays
+    private static final int NODES_PER_MS = 1_000;
+    private static final int MIN_NODES = 1 << 16;
+
+    // Shared by all instances, see the class comment
+    private static final ExecutorService POOL = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "TreeParallelSearch");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final int threads;
+    private final int maxNodes;
+
+    // Node storage, see MonteCarloTree. score counts half points for the player that
+    // made the move into the node. Made by the first search, see ensureCapacity.
+    private int[] visits;
+    private int[] score;
+    private int[] firstChild;
+    private byte[] childCount;
+    private byte[] square;
+    private final AtomicInteger size = new AtomicInteger();
+
+    private BitboardField rootField;
+    private int rootPlayer;
+    private int rootMoveNumber;
+    private int root;
+    private long seed = System.nanoTime();
+    private long playouts;
+
+    /**
+     * @param threads the number of threads searching the tree, e.g.
+     *                Runtime.getRuntime().availableProcessors()
+     */
+    public TreeParallelSearch(int threads) {
+        this(threads, MonteCarloTree.DEFAULT_MAX_NODES);
+    }
+
+    /**
+     * @param threads the number of threads searching the tree
+     * @param maxNodes the most nodes the tree may hold. Searching goes on without
+     *                 expanding when it is full.
+     */
+    public TreeParallelSearch(int threads, int maxNodes) {
+        if (threads < 1)
+            throw new IllegalArgumentException("Need at least one thread, got " + threads);
+        this.threads = threads;
+        this.maxNodes = maxNodes;
+    }
+
+    /**
+     * Searches state on all threads until System.nanoTime() reaches deadline.
+     * The tree of the previous search is kept if state is in it, see the class comment.
+     * @return the most visited move, or null when the game is over
+     */
+    public IMove search(IGameState state, long deadline) {
+        BitboardField field = BitboardField.of(state.getField());
+        int node = findRoot(state, field);
+        // Claims that did not fit may have left the count past the end of the arrays
+        int used = node >= 0 ? Math.min(size.get(), visits.length) : 1;
+        ensureCapacity(used, deadline);
+        size.set(used);
+        if (node < 0) {
+            node = 0;
+            visits[node] = 0;
+            score[node] = 0;
+            firstChild[node] = UNEXPANDED;
+        }
+        root = node;
+        rootField = field;
+        rootPlayer = state.getMoveNumber() % 2;
+        rootMoveNumber = state.getMoveNumber();
+
+        // Submitting the workers publishes the reset tree to them
+        List<Future<Long>> results = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Worker worker = new Worker(seed += 0x9E3779B97F4A7C15L);
+            results.add(POOL.submit(() -> worker.searchUntil(deadline)));
+        }
+        playouts = 0;
+        for (Future<Long> result : results) {
+            try {
+                playouts += result.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while searching", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Search failed", e.getCause());
+            }
+        }
+
+        int first = firstChild[root];
+        if (first < 0)
+            return null;
+        int best = first;
+        for (int child = first + 1; child < first + childCount[root]; child++) {
+            if (visits[child] > visits[best])
+                best = child;
+        }
+        return Move.of(square[best]);
+    }
+
+    /**
+     * @return the number of playouts of the last search, over all threads
+     */
+    public long getPlayouts() {
+        return playouts;
+    }
+
+    /**
+     * @return the number of threads searching
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    // Makes the arrays big enough for the used nodes that are kept and what the
+    // threads can add until deadline. The kept nodes are copied to the new arrays.
+    private void ensureCapacity(int used, long deadline) {
+        long ms = Math.max(1, (deadline - System.nanoTime()) / 1_000_000);
+        int wanted = (int) Math.min(maxNodes, Math.max(MIN_NODES, used + ms * threads * NODES_PER_MS));
+        if (visits != null && visits.length >= wanted)
+            return;
+        if (visits == null)
+            used = 0;
+        visits = copy(visits, used, wanted);
+        score = copy(score, used, wanted);
+        firstChild = copy(firstChild, used, wanted);
+        childCount = copy(childCount, used, wanted);
+        square = copy(square, used, wanted);
+    }
+
+    private static int[] copy(int[] array, int used, int length) {
+        int[] result = new int[length];
+        if (used > 0)
+            System.arraycopy(array, 0, result, 0, used);
+        return result;
+    }
+
+    private static byte[] copy(byte[] array, int used, int length) {
+        byte[] result = new byte[length];
+        if (used > 0)
+            System.arraycopy(array, 0, result, 0, used);
+        return result;
+    }
+
+    // The node of the last search's tree holding state, or -1 when it is not in the
+    // tree or the tree is too full to keep
+    private int findRoot(IGameState state, BitboardField target) {
+        int depth = state.getMoveNumber() - rootMoveNumber;
+        if (rootField == null || depth < 0 || depth > 2 || size.get() > maxNodes / 2)
+            return -1;
+        return findNode(root, depth, target.getHash(), new BitboardField(rootField), rootPlayer);
+    }
+
+    // The node depth moves below node whose position has the key hash, or -1.
+    // field holds the position of node and is the same again on return.
+    private int findNode(int node, int depth, long hash, BitboardField field, int player) {
+        if (depth == 0)
+            return field.getHash() == hash ? node : -1;
+        int first = firstChild[node];
+        if (first < 0)
+            return -1;
+        for (int child = first; child < first + childCount[node]; child++) {
+            int move = square[child];
+            int previousAvailable = field.getAvailableMicroboards();
+            field.play(move / 9, move % 9, player);
+            int found = findNode(child, depth - 1, hash, field, player ^ 1);
+            field.undo(move / 9, move % 9, previousAvailable);
+            if (found >= 0)
+                return found;
+        }
+        return -1;
+    }
+
+    private static boolean isGameOver(BitboardField field) {
+        return field.getWinner() >= 0 || !field.hasAvailableMoves();
+    }
+
+    // Adds a child for every legal move of field, the position of node, unless another
+    // thread got there first. Returns false if node has no children to select from yet.
+    private boolean expand(int node, BitboardField field) {
+        if (!INTS.compareAndSet(firstChild, node, UNEXPANDED, EXPANDING))
+            return (int) INTS.getAcquire(firstChild, node) >= 0;
+        int count = field.countAvailableMoves();
+        // Full: put the node back, a later search expands it once the arrays have grown.
+        // The check first keeps full trees from adding to the count on every visit.
+        if (size.get() + count > visits.length) {
+            INTS.setRelease(firstChild, node, UNEXPANDED);
+            return false;
+        }
+        int first = size.getAndAdd(count);
+        if (first + count > visits.length) {
+            // Another thread took the room first. The count is not taken back: another
+            // thread may have claimed room past this since, see the class comment.
+            INTS.setRelease(firstChild, node, UNEXPANDED);
+            return false;
+        }
+        // The room may hold nodes of an earlier search
+        for (int i = 0; i < count; i++) {
+            int child = first + i;
+            visits[child] = 0;
+            score[child] = 0;
+            square[child] = (byte) field.availableSquare(i);
+            firstChild[child] = UNEXPANDED;
+        }
+        childCount[node] = (byte) count;
+        INTS.setRelease(firstChild, node, first);
+        return true;
+    }
+
+    // The child with the highest UCT value, children that were never visited first
+    private int select(int node, int first) {
+        int end = first + childCount[node];
+        double logVisits = Math.log(visits[node]);
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int n = visits[child];
+            if (n == 0)
+                return child;
+            double value = score[child] / (2.0 * n) + MonteCarloTree.EXPLORATION * Math.sqrt(logVisits / n);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    // The state of one thread: its scratch board, path and random numbers
+    private class Worker {
+        private final BitboardField field = new BitboardField();
+        private final int[] path = new int[82];
+        private long seed;
+
+        Worker(long seed) {
+            this.seed = seed == 0 ? 1 : seed;
+        }
+
+        long searchUntil(long deadline) {
+            long iterations = 0;
+            do {
+                for (int i = 0; i < 16; i++)
+                    iterate();
+                iterations += 16;
+            } while (System.nanoTime() - deadline < 0);
+            return iterations;
+        }
+
+        private void iterate() {
+            BitboardField field = this.field;
+            field.copyFrom(rootField);
+            int player = rootPlayer;
+            int node = root;
+            int depth = 0;
+            path[0] = node;
+            INTS.getAndAdd(visits, node, 1);
+            boolean gameOver = isGameOver(field);
+
+            while (!gameOver) {
+                int first = (int) INTS.getAcquire(firstChild, node);
+                if (first < 0) {
+                    if (first == EXPANDING || visits[node] <= VIRTUAL_LOSS && node != root || !expand(node, field))
+                        break;
+                    first = (int) INTS.getAcquire(firstChild, node);
+                }
+                node = select(node, first);
+                int move = square[node];
+                field.play(move / 9, move % 9, player);
+                player ^= 1;
+                path[++depth] = node;
+                INTS.getAndAdd(visits, node, VIRTUAL_LOSS);
+                gameOver = isGameOver(field);
+            }
+
+            int winner = gameOver ? field.getWinner() : playout(field, player);
+
+            // Replace the virtual loss with the real result
+            int mover = rootPlayer;
+            for (int d = 1; d <= depth; d++) {
+                int n = path[d];
+                INTS.getAndAdd(visits, n, 1 - VIRTUAL_LOSS);
+                if (winner == mover)
+                    INTS.getAndAdd(score, n, 2);
+                else if (winner < 0)
+                    INTS.getAndAdd(score, n, 1);
+                mover ^= 1;
+            }
+        }
+
+        // Plays random moves until the game is over, returns the winner or -1 for a tie
+        private int playout(BitboardField field, int player) {
+            while (true) {
+                int count = field.countAvailableMoves();
+                if (count == 0)
+                    return -1;
+                int move = field.availableSquare(nextInt(count));
+                field.play(move / 9, move % 9, player);
+                if (field.getWinner() >= 0)
+                    return player;
+                player ^= 1;
+            }
+        }
+
+        // xorshift64*, see MonteCarloTree
+        private int nextInt(int bound) {
+            seed ^= seed >>> 12;
+            seed ^= seed << 25;
+            seed ^= seed >>> 27;
+            long random = (seed * 0x2545F4914F6CDD1DL) >>> 32;
+            return (int) ((random * bound) >>> 32);
+        }
+    }
+}
@@ -1,7 +1,5 @@
 package dk.easv.bll.move;
 
-import java.util.Objects;
-
 public class Move implements IMove{
     int x=0;
     int y=0;
@@ -11,6 +9,24 @@ public class Move implements IMove{
         this.y=y;
     }
 
+    /**
+     * @param x Column, 0..8
+     * @param y Row, 0..8
+     * @return the shared, immutable move for (x,y), see SquareMove. Use new Move(x, y)
+     * for a move that can be changed.
+     */
+    public static IMove of(int x, int y) {
+        return SquareMove.of(x, y);
+    }
+
+    /**
+     * @param square x*9 + y, as used by the int based move API
+     * @return the shared, immutable move for that square, see SquareMove
+     */
+    public static IMove of(int square) {
+        return SquareMove.of(square);
+    }
+
     public void setY(int y){
         this.y=y;
     }
@@ -34,16 +50,17 @@ public class Move implements IMove{
         return "("+x+","+y+")";
     }
 
+    // Equal to the SquareMove of the same square, so both kinds can be mixed in sets and lists
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        Move move = (Move) o;
-        return x == move.x && y == move.y;
+        if (o == null || (getClass() != o.getClass() && o.getClass() != SquareMove.class)) return false;
+        IMove move = (IMove) o;
+        return x == move.getX() && y == move.getY();
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(x, y);
+        return 31 * x + y;
     }
 }
@@ -0,0 +1,72 @@
+package dk.easv.bll.move;
+
+/**
+ * Immutable move, one shared instance per square, handed out by Move.of. Field,
+ * GameManager, the searches and the bots use these instead of allocating a new
+ * Move for every move they make or list.
+ *
+ * It is not a Move and has no setters, a bot that wants to change a move makes its
+ * own Move. It is equal to a Move of the same square and has the same hash code.
+ */
+public final class SquareMove implements IMove {
+    // Indexed x*9 + y
+    private static final SquareMove[] MOVES = new SquareMove[81];
+
+    static {
+        for (int square = 0; square < 81; square++)
+            MOVES[square] = new SquareMove(square / 9, square % 9);
+    }
+
+    private final int x;
+    private final int y;
+
+    private SquareMove(int x, int y) {
+        this.x = x;
+        this.y = y;
+    }
+
+    /**
+     * @param square x*9 + y, 0..80
+     * @return the shared move for that square
+     */
+    public static SquareMove of(int square) {
+        return MOVES[square];
+    }
+
+    /**
+     * @param x Column, 0..8
+     * @param y Row, 0..8
+     * @return the shared move for (x,y)
+     */
+    public static SquareMove of(int x, int y) {
+        return MOVES[x * 9 + y];
+    }
+
+    @Override
+    public int getX() {
+        return x;
+    }
+
+    @Override
+    public int getY() {
+        return y;
+    }
+
+    @Override
+    public String toString() {
+        return "("+x+","+y+")";
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || o.getClass() != Move.class) return false;
+        Move move = (Move) o;
+        return x == move.getX() && y == move.getY();
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * x + y;
+    }
+}
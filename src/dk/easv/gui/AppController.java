@@ -202,7 +202,7 @@ public class AppController implements Initializable {
                 BoardModel model = new BoardModel(bot1, bot2);
                 int currentPlayer = 0;
                 while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
+                         && model.getGameState().getField().hasAvailableMoves()) {
                     currentPlayer = model.getCurrentPlayer();
                     Boolean valid = model.doMove();
                     if (!valid) {
@@ -241,7 +241,7 @@ public class AppController implements Initializable {
                 BoardModel model = new BoardModel(bot2, bot1);
                 int currentPlayer = 0;
                 while (model.getGameOverState() == GameManager.GameOverState.Active
-                         && model.getGameState().getField().getAvailableMoves().size()>0) {
+                         && model.getGameState().getField().hasAvailableMoves()) {
                     currentPlayer = model.getCurrentPlayer();
                     Boolean valid = model.doMove();
                     if (!valid) {
@@ -2,6 +2,7 @@ package dk.easv.gui;
 
 
 import dk.easv.bll.bot.IBot;
+import dk.easv.bll.field.BitboardField;
 import dk.easv.bll.game.*;
 import dk.easv.bll.game.IGameState;
 import dk.easv.bll.move.IMove;
@@ -18,15 +19,15 @@ public class BoardModel implements Observable{
     private boolean isForced=false;
     
     public BoardModel() {
-        game = new GameManager(new GameState());
+        game = new GameManager(new GameState(new BitboardField()));
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
     }
     public BoardModel(IBot bot, boolean humanPlaysFirst) {
-        game = new GameManager(new GameState(), bot, humanPlaysFirst);
+        game = new GameManager(new GameState(new BitboardField()), bot, humanPlaysFirst);
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
     }
     public BoardModel(IBot bot1, IBot bot2) {
-        game = new GameManager(new GameState(), bot1, bot2);
+        game = new GameManager(new GameState(new BitboardField()), bot1, bot2);
         game.getCurrentState().setTimePerMove(TIME_PER_MOVE);
     }
 